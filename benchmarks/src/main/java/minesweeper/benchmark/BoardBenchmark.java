@@ -0,0 +1,48 @@
+package minesweeper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import minesweeper.BoardBlock;
+import minesweeper.MinesweeperBoard;
+
+/**
+ * measures building a board from a fixed mine layout, which is dominated by counting adjacent mines, and generating
+ * seeded boards one at a time and in bulk
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+	private static final int BLOCK_SIZE = 256;
+
+	@Param
+	public BoardSpec spec;
+
+	private int[][] layout;
+
+	@Setup
+	public void setUp() {
+		layout = Fixtures.mineLayout(spec, Fixtures.SEED);
+	}
+
+	@Benchmark
+	public MinesweeperBoard construct() {
+		return new MinesweeperBoard(layout);
+	}
+
+	@Benchmark
+	public MinesweeperBoard generate() {
+		return spec.buildBoard(Fixtures.SEED, 0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BLOCK_SIZE)
+	public BoardBlock generateBlock() {
+		return BoardBlock.generate(spec.width, spec.height, spec.mines, Fixtures.SEED, 0, BLOCK_SIZE);
+	}
+}
@@ -0,0 +1,32 @@
+package minesweeper.benchmark;
+
+import minesweeper.MinesweeperBoard;
+
+/**
+ * the preset Minesweeper difficulties, as used by the benchmarks
+ */
+public enum BoardSpec {
+	Beginner(9, 9, 10),
+	Intermediate(16, 16, 40),
+	Expert(30, 16, 99);
+
+	public final int width;
+	public final int height;
+	public final int mines;
+
+	BoardSpec(int width, int height, int mines) {
+		this.width = width;
+		this.height = height;
+		this.mines = mines;
+	}
+
+	/**
+	 * returns board number index of the run seeded with seed
+	 * @param seed
+	 * @param index
+	 * @return
+	 */
+	public MinesweeperBoard buildBoard(long seed, long index) {
+		return MinesweeperBoard.forIndex(width, height, mines, seed, index);
+	}
+}
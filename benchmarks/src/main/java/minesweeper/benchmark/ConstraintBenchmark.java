@@ -0,0 +1,81 @@
+package minesweeper.benchmark;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import minesweeper.Constraint;
+
+/**
+ * measures the single-constraint operations on the hot path: reducing a freshly revealed tile's constraint by the known
+ * tiles, and checking a constraint against a full and a partial configuration
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintBenchmark {
+	/**
+	 * the number of known tiles on the board, centered on the constraint
+	 */
+	@Param({"9", "100", "400"})
+	public int knownTiles;
+
+	private Set<Point> neighbors;
+	private Map<Point, Boolean> known;
+	private Constraint constraint;
+	private Map<Point, Boolean> fullConfiguration;
+	private Map<Point, Boolean> partialConfiguration;
+
+	@Setup
+	public void setUp() {
+		neighbors = new HashSet<>();
+		for (int x = 9; x <= 11; x++)
+			for (int y = 9; y <= 11; y++)
+				neighbors.add(new Point(x, y));
+
+		known = new HashMap<>();
+		int side = (int) Math.ceil(Math.sqrt(knownTiles));
+		for (int i = 0; known.size() < knownTiles; i++)
+			known.put(new Point(10 - side / 2 + i % side, 10 - side / 2 + i / side), i % 7 == 0);
+
+		Set<Point> unknown = new HashSet<>(neighbors);
+		unknown.removeAll(known.keySet());
+		unknown.add(new Point(8, 8));
+		unknown.add(new Point(12, 12));
+		constraint = new Constraint(unknown, 1);
+
+		fullConfiguration = new HashMap<>();
+		partialConfiguration = new HashMap<>();
+		int i = 0;
+		for (Point p : unknown) {
+			fullConfiguration.put(p, i == 0);
+			if (i++ % 2 == 0)
+				partialConfiguration.put(p, false);
+		}
+	}
+
+	@Benchmark
+	public Constraint reduce() {
+		Constraint c = new Constraint(new HashSet<>(neighbors), 3);
+		c.reduce(known);
+		return c;
+	}
+
+	@Benchmark
+	public Boolean isSatisfiedFull() {
+		return constraint.isSatisfied(fullConfiguration);
+	}
+
+	@Benchmark
+	public Boolean isSatisfiedPartial() {
+		return constraint.isSatisfied(partialConfiguration);
+	}
+}
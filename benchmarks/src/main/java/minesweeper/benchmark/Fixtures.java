@@ -0,0 +1,67 @@
+package minesweeper.benchmark;
+
+import java.awt.Point;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import minesweeper.Constraint;
+import minesweeper.ConstraintSet;
+
+/**
+ * deterministic inputs shared by the benchmarks
+ */
+final class Fixtures {
+	static final long SEED = 435;
+
+	private Fixtures() {
+	}
+
+	/**
+	 * returns a row-major mine layout of the given size, as accepted by MinesweeperBoard(int[][])
+	 * @param spec
+	 * @param seed
+	 * @return
+	 */
+	static int[][] mineLayout(BoardSpec spec, long seed) {
+		int[][] layout = new int[spec.height][spec.width];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int placed = 0; placed < spec.mines; ) {
+			int row = random.nextInt(spec.height), col = random.nextInt(spec.width);
+			if (layout[row][col] == 0) {
+				layout[row][col] = 1;
+				placed++;
+			}
+		}
+
+		return layout;
+	}
+
+	/**
+	 * Returns the constraints along a straight wall of the given number of hidden tiles (row 1), as seen from the
+	 * revealed tiles of row 0.  Every other revealed tile is kept, so that the frontier forms a single component with
+	 * plenty of satisfying configurations
+	 * @param size the number of hidden tiles in the frontier
+	 * @param seed
+	 * @return
+	 */
+	static ConstraintSet wall(int size, long seed) {
+		boolean[] mines = new boolean[size];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int x = 0; x < size; x++)
+			mines[x] = random.nextInt(5) == 0;
+
+		ConstraintSet constraints = new ConstraintSet(new SplittableRandom(seed));
+		for (int x = 0; x < size; x += 2) {
+			Set<Point> points = new HashSet<>();
+			int sum = 0;
+			for (int dx = Math.max(0, x - 1); dx <= Math.min(size - 1, x + 1); dx++) {
+				points.add(new Point(dx, 1));
+				sum += mines[dx] ? 1 : 0;
+			}
+			constraints.add(new Constraint(points, sum));
+		}
+
+		return constraints;
+	}
+}
@@ -0,0 +1,64 @@
+package minesweeper.benchmark;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import minesweeper.ConstraintSet;
+
+/**
+ * measures enumerating and counting the configurations of a single frontier component of increasing size.  A
+ * constraint set keeps the count of each component until one of its constraints changes, so counting is measured on a
+ * set built afresh for every call, and the cached lookup separately
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontierBenchmark {
+	/**
+	 * the number of hidden tiles in the frontier
+	 */
+	@Param({"8", "16", "24", "32"})
+	public int size;
+
+	private ConstraintSet constraints;
+
+	@Setup
+	public void setUp() {
+		constraints = Fixtures.wall(size, Fixtures.SEED);
+	}
+
+	@Benchmark
+	public List<Map<Point, Boolean>> findSatisfyingConfigurations() {
+		return constraints.findSatisfyingConfigurations();
+	}
+
+	@Benchmark
+	public Map<Point, Double> calculateProbabilities(Uncounted uncounted) {
+		return uncounted.constraints.calculateProbabilities(size / 5, 4 * size);
+	}
+
+	@Benchmark
+	public Map<Point, Double> calculateProbabilitiesCached() {
+		return constraints.calculateProbabilities(size / 5, 4 * size);
+	}
+
+	/**
+	 * a frontier which has not been counted yet
+	 */
+	@State(Scope.Thread)
+	public static class Uncounted {
+		private ConstraintSet constraints;
+
+		@Setup(Level.Invocation)
+		public void setUp(FrontierBenchmark benchmark) {
+			constraints = Fixtures.wall(benchmark.size, Fixtures.SEED);
+		}
+	}
+}
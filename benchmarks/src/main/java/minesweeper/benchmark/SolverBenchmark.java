@@ -0,0 +1,60 @@
+package minesweeper.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import minesweeper.MinesweeperBoard;
+import minesweeper.MinesweeperSolver;
+
+/**
+ * measures playing a whole game, cycling through a fixed set of seeded boards so that every run plays the same games.
+ * Games are played both by a new solver each and by one solver reset between games, so the GC profiler shows what reuse
+ * saves in allocation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+	private static final int BOARDS = 64;
+
+	@Param
+	public BoardSpec spec;
+
+	private MinesweeperBoard[] boards;
+	private MinesweeperSolver reusedSolver;
+	private int game;
+
+	@Setup
+	public void setUp() {
+		boards = new MinesweeperBoard[BOARDS];
+		for (int i = 0; i < BOARDS; i++)
+			boards[i] = spec.buildBoard(Fixtures.SEED, i);
+		reusedSolver = new MinesweeperSolver(boards[0]);
+		game = 0;
+	}
+
+	@Benchmark
+	public Boolean solve() {
+		MinesweeperBoard board = boards[game % BOARDS];
+		board.reset();
+
+		MinesweeperSolver solver = new MinesweeperSolver(board, new SplittableRandom(game++));
+		solver.solve();
+		return solver.isWin();
+	}
+
+	@Benchmark
+	public Boolean solveReusingSolver() {
+		MinesweeperBoard board = boards[game % BOARDS];
+		board.reset();
+
+		reusedSolver.reset(board, new SplittableRandom(game++));
+		reusedSolver.solve();
+		return reusedSolver.isWin();
+	}
+}
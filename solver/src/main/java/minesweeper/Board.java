@@ -0,0 +1,79 @@
+package minesweeper;
+
+/**
+ * The view of a Minesweeper board a player works through.  Tiles are addressed by row and column; where a single
+ * number is needed, a tile is identified by its flat index <code>row * (long) width + column</code>.
+ */
+public interface Board {
+	/**
+	 * Returns the width of this board.
+	 *
+	 * @return The width of this board.
+	 */
+	int getWidth();
+
+	/**
+	 * Returns the height of this board.
+	 *
+	 * @return The height of this board.
+	 */
+	int getHeight();
+
+	/**
+	 * Returns the topology describing which tiles of this board touch, or
+	 * <code>null</code> if the board is too large to tabulate and is a
+	 * standard grid.
+	 *
+	 * @return The topology of this board, or <code>null</code>.
+	 */
+	Topology getTopology();
+
+	/**
+	 * Returns the total number of mines on this board.
+	 *
+	 * @return The total number of mines on this board.
+	 */
+	long getMineCount();
+
+	/**
+	 * Indicates whether a mine tile has been revealed, signifying that the
+	 * game for this board is over (a loss).
+	 *
+	 * @return <code>true</code> if a mine tile has been revealed, or
+	 * <code>false</code> otherwise.
+	 */
+	boolean hasRevealedMine();
+
+	/**
+	 * Returns the visible state of a specified tile: {@link MinesweeperBoard#HIDDEN},
+	 * {@link MinesweeperBoard#MINE}, or the number of adjacent mines.
+	 *
+	 * @param row The row of the tile to examine.
+	 * @param column The column of the tile to examine.
+	 * @return The visible state of the specified tile.
+	 * @throws IllegalArgumentException If the coordinates of the specified
+	 * tile do not exist on this board.
+	 */
+	int getTile(int row, int column);
+
+	/**
+	 * Reveals a specified tile and, if it has no adjacent mines, every tile
+	 * reachable from it through tiles with no adjacent mines.
+	 *
+	 * @param row The row of the tile to reveal.
+	 * @param column The column of the tile to reveal.
+	 * @return The flat indices of the tiles revealed by this call, starting
+	 * with the specified tile.
+	 * @throws IllegalStateException If a mine has been revealed previously on
+	 * this board or if the specified tile has been revealed previously.
+	 * @throws IllegalArgumentException If the coordinates of the specified
+	 * tile do not exist on this board.
+	 */
+	long[] revealCascade(int row, int column);
+
+	/**
+	 * Resets this board to its initial configuration where all tiles are
+	 * hidden.
+	 */
+	void reset();
+}
@@ -0,0 +1,276 @@
+package minesweeper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.random.RandomGenerator;
+
+/**
+ * A block of consecutive boards of a seeded run, generated together into two flat arrays: the mine mask of every board,
+ * as {@link MinesweeperBoard#getMaskWords(int, int)} longs in the layout of {@link MinesweeperBoard#getMineMask()}, and
+ * the number of mines adjacent to every tile of every board as a byte.
+ *
+ * Mines are placed exactly as {@link MinesweeperBoard#forIndex(int, int, int, long, long)} places them, but straight
+ * into the mask.  On boards up to 64 tiles wide, adjacent counts are then computed a row at a time rather than a tile
+ * at a time: the eight neighbor masks of a row (the rows above and below it, shifted a column either way and unshifted,
+ * and its own row shifted either way) are summed by bit-sliced adders into four bit planes, which hold the count of
+ * every column of the row at once.  Counts are then written eight columns at a time, by spreading each byte of the bit
+ * planes out to one bit per byte.  Wider boards are counted through their {@link Topology}.
+ */
+public final class BoardBlock {
+	/**
+	 * the long with bit i of the index moved to the lowest bit of byte i
+	 */
+	private static final long[] SPREAD = new long[256];
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	static {
+		for (int i = 0; i < SPREAD.length; i++)
+			for (int bit = 0; bit < 8; bit++)
+				if ((i >>> bit & 1) != 0)
+					SPREAD[i] |= 1L << (bit << 3);
+	}
+
+	private final Topology topology;
+	private final int mines;
+	private final long first;
+	private final int size;
+	private final int words;
+	private final long[] mineMasks;
+	private final byte[] counts;
+
+	private BoardBlock(Topology topology, int mines, long first, int size) {
+		this.topology = topology;
+		this.mines = mines;
+		this.first = first;
+		this.size = size;
+		words = MinesweeperBoard.getMaskWords(topology.getWidth(), topology.getHeight());
+		mineMasks = new long[size * words];
+		counts = new byte[size * topology.getTileCount()];
+	}
+
+	/**
+	 * returns boards first up to first + count of a run seeded with seed, equal to those of
+	 * {@link GameSpec#buildBoard(long, long)}
+	 * @param spec
+	 * @param seed
+	 * @param first
+	 * @param count
+	 * @return
+	 */
+	public static BoardBlock generate(GameSpec spec, long seed, long first, int count) {
+		return generate(spec.getWidth(), spec.getHeight(), spec.getMines(), seed, first, count);
+	}
+
+	/**
+	 * returns boards first up to first + count of a run seeded with seed, equal to those of
+	 * {@link MinesweeperBoard#forIndex(int, int, int, long, long)}
+	 * @param width
+	 * @param height
+	 * @param mines
+	 * @param seed
+	 * @param first
+	 * @param count
+	 * @return
+	 */
+	public static BoardBlock generate(int width, int height, int mines, long seed, long first, int count) {
+		Topology topology = Topology.grid(width, height);
+		if (mines < 0 || mines > topology.getTileCount() || count < 0
+				|| (long) count * topology.getTileCount() > Integer.MAX_VALUE)
+			throw new IllegalArgumentException();
+
+		BoardBlock block = new BoardBlock(topology, mines, first, count);
+		int[] shuffle = new int[topology.getTileCount()];
+		for (int i = 0; i < count; i++) {
+			placeMines(topology.getTileCount(), mines, MinesweeperBoard.randomFor(seed, first + i), shuffle, block.mineMasks, i * block.words);
+			countAdjacentMines(topology, block.mineMasks, i * block.words, block.counts, i * topology.getTileCount());
+		}
+
+		return block;
+	}
+
+	/**
+	 * sets a bit in a cleared mask for each of mines tiles drawn from random, in the order
+	 * {@link MinesweeperBoard#MinesweeperBoard(Topology, int, RandomGenerator)} draws them
+	 * @param tiles
+	 * @param mines
+	 * @param random
+	 * @param shuffle scratch space for at least tiles ints
+	 * @param mask
+	 * @param offset the first word of the mask
+	 */
+	private static void placeMines(int tiles, int mines, RandomGenerator random, int[] shuffle, long[] mask, int offset) {
+		for (int i = 0; i < tiles; i++)
+			shuffle[i] = i;
+		for (int i = 0; i < mines; i++) {
+			int rand = random.nextInt(tiles - i);
+			int tile = shuffle[rand];
+			mask[offset + (tile >>> 6)] |= 1L << tile;
+			shuffle[rand] = shuffle[tiles - i - 1];
+		}
+	}
+
+	/**
+	 * writes the number of mines adjacent to every tile of a board, mines included, given its mine mask
+	 * @param topology
+	 * @param mask
+	 * @param maskOffset the first word of the board's mask
+	 * @param counts
+	 * @param countsOffset where the count of the board's first tile goes
+	 */
+	private static void countAdjacentMines(Topology topology, long[] mask, int maskOffset, byte[] counts, int countsOffset) {
+		if (topology.getShape() == Topology.Shape.GRID && topology.getWidth() <= 64) {
+			countRows(topology.getWidth(), topology.getHeight(), mask, maskOffset, counts, countsOffset);
+			return;
+		}
+
+		int[] offsets = topology.getOffsets(), neighbors = topology.getNeighbors();
+		for (int tile = 0; tile < topology.getTileCount(); tile++) {
+			int adjacentMines = 0;
+			for (int n = offsets[tile]; n < offsets[tile + 1]; n++) {
+				int neighbor = neighbors[n];
+				if ((mask[maskOffset + (neighbor >>> 6)] & 1L << neighbor) != 0)
+					adjacentMines++;
+			}
+			counts[countsOffset + tile] = (byte) adjacentMines;
+		}
+	}
+
+	private static void countRows(int width, int height, long[] mask, int maskOffset, byte[] counts, int countsOffset) {
+		long columns = width == 64 ? -1 : (1L << width) - 1;
+		long above = 0, row = getRow(mask, maskOffset, 0, width, columns);
+		for (int r = 0; r < height; r++) {
+			long below = r + 1 < height ? getRow(mask, maskOffset, r + 1, width, columns) : 0;
+
+			// bit c of a mask shifted left is the tile to the left of column c, and of one shifted right the tile to its
+			// right.  The three rows are first summed by full adders into ones and twos, which are then added up
+			long a0 = above << 1, a1 = above, a2 = above >>> 1;
+			long aOnes = a0 ^ a1 ^ a2, aTwos = (a0 & a1) | (a2 & (a0 ^ a1));
+			long r0 = row << 1, r1 = row >>> 1;
+			long rOnes = r0 ^ r1, rTwos = r0 & r1;
+			long c0 = below << 1, c1 = below, c2 = below >>> 1;
+			long cOnes = c0 ^ c1 ^ c2, cTwos = (c0 & c1) | (c2 & (c0 ^ c1));
+
+			long ones = aOnes ^ rOnes ^ cOnes, onesCarry = (aOnes & rOnes) | (cOnes & (aOnes ^ rOnes));
+			long twosSum = aTwos ^ rTwos ^ cTwos, twosCarry = (aTwos & rTwos) | (cTwos & (aTwos ^ rTwos));
+			long twos = twosSum ^ onesCarry, fours = twosCarry ^ (twosSum & onesCarry);
+			long eights = twosCarry & twosSum & onesCarry;
+
+			int base = countsOffset + r * width, c = 0;
+			for (; c + 8 <= width; c += 8)
+				LONGS.set(counts, base + c, spread(ones, twos, fours, eights, c));
+			for (long packed = spread(ones, twos, fours, eights, c); c < width; c++, packed >>>= 8)
+				counts[base + c] = (byte) packed;
+
+			above = row;
+			row = below;
+		}
+	}
+
+	/**
+	 * returns the counts of the eight columns from column as the bytes of a long, first column lowest
+	 */
+	private static long spread(long ones, long twos, long fours, long eights, int column) {
+		return SPREAD[(int) (ones >>> column) & 0xFF]
+				| SPREAD[(int) (twos >>> column) & 0xFF] << 1
+				| SPREAD[(int) (fours >>> column) & 0xFF] << 2
+				| SPREAD[(int) (eights >>> column) & 0xFF] << 3;
+	}
+
+	/**
+	 * returns the mine bits of one row of a board no more than 64 tiles wide, column 0 in the lowest bit
+	 */
+	private static long getRow(long[] mask, int maskOffset, int row, int width, long columns) {
+		int bit = row * width, word = bit >>> 6, shift = bit & 63;
+		long bits = mask[maskOffset + word] >>> shift;
+		if (shift + width > 64)
+			bits |= mask[maskOffset + word + 1] << (64 - shift);
+
+		return bits & columns;
+	}
+
+	public int getWidth() {
+		return topology.getWidth();
+	}
+
+	public int getHeight() {
+		return topology.getHeight();
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	public int getMines() {
+		return mines;
+	}
+
+	/**
+	 * returns the index within its run of the first board of this block
+	 * @return
+	 */
+	public long getFirst() {
+		return first;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * returns a copy of the mine mask of a board, in the layout of {@link MinesweeperBoard#getMineMask()}
+	 * @param index the position of the board within this block
+	 * @return
+	 */
+	public long[] getMineMask(int index) {
+		long[] mask = new long[words];
+		System.arraycopy(mineMasks, checkIndex(index) * words, mask, 0, words);
+		return mask;
+	}
+
+	/**
+	 * returns whether a tile of a board holds a mine
+	 * @param index the position of the board within this block
+	 * @param row
+	 * @param column
+	 * @return
+	 */
+	public boolean isMine(int index, int row, int column) {
+		int tile = getTile(row, column);
+		return (mineMasks[checkIndex(index) * words + (tile >>> 6)] & 1L << tile) != 0;
+	}
+
+	/**
+	 * returns the number of mines adjacent to a tile of a board, whether or not the tile is a mine itself
+	 * @param index the position of the board within this block
+	 * @param row
+	 * @param column
+	 * @return
+	 */
+	public int getAdjacentMines(int index, int row, int column) {
+		return counts[checkIndex(index) * topology.getTileCount() + getTile(row, column)];
+	}
+
+	/**
+	 * returns a new board, with every tile hidden, equal to the one generated one at a time for the same run and index
+	 * @param index the position of the board within this block
+	 * @return
+	 */
+	public MinesweeperBoard getBoard(int index) {
+		return new MinesweeperBoard(topology, mineMasks, checkIndex(index) * words, counts, index * topology.getTileCount());
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException(index);
+
+		return index;
+	}
+
+	private int getTile(int row, int column) {
+		if (row < 0 || column < 0 || row >= getHeight() || column >= getWidth())
+			throw new IllegalArgumentException();
+
+		return row * getWidth() + column;
+	}
+}
@@ -0,0 +1,212 @@
+package minesweeper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * A file of boards which all share one size, stored as bit-packed mine masks so that they can be loaded straight from a
+ * memory mapping.
+ *
+ * The file is a 24 byte header (magic, version, width, height, board count) followed by one record per board: the
+ * board's mine mask as {@link MinesweeperBoard#getMaskWords(int, int)} big-endian longs, in the layout of
+ * {@link MinesweeperBoard#getMineMask()}.  Records have a fixed size, so opening a corpus reads only the header, and any
+ * board is found directly from its index.
+ */
+public class BoardCorpus implements Closeable {
+	private static final int MAGIC = 0x4D534243; // "MSBC"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+
+	private final FileChannel channel;
+	private final int width;
+	private final int height;
+	private final long size;
+	private final int recordSize;
+	private final int recordsPerSegment;
+	private final LongBuffer[] segments;
+
+	private BoardCorpus(FileChannel channel) throws IOException {
+		this.channel = channel;
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0) ;
+		header.flip();
+		if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION)
+			throw new IOException("not a board corpus");
+
+		width = header.getInt();
+		height = header.getInt();
+		size = header.getLong();
+		if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE / 9)
+			throw new IOException("board corpus header gives an invalid board size of " + width + "x" + height);
+
+		// the records must fill the rest of the file exactly, which also rules out a corrupt count overflowing
+		recordSize = MinesweeperBoard.getMaskWords(width, height) * Long.BYTES;
+		long recordBytes = channel.size() - HEADER_SIZE;
+		if (size < 0 || recordBytes % recordSize != 0 || recordBytes / recordSize != size)
+			throw new IOException(String.format("board corpus header gives %d boards of %dx%d (%d bytes each), but the file holds %d bytes of records",
+					size, width, height, recordSize, recordBytes));
+
+		// a single mapping is limited to 2GB, so large corpora are mapped as several segments of whole records
+		recordsPerSegment = Integer.MAX_VALUE / recordSize;
+		segments = new LongBuffer[(int) ((size + recordsPerSegment - 1) / recordsPerSegment)];
+		for (int s = 0; s < segments.length; s++) {
+			long first = (long) s * recordsPerSegment;
+			long records = Math.min(recordsPerSegment, size - first);
+			MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize, records * recordSize);
+			segments[s] = mapping.asLongBuffer();
+		}
+	}
+
+	/**
+	 * maps a corpus file for reading
+	 * @param file
+	 * @return
+	 * @throws IOException if the file is not a board corpus, or its header does not match its length
+	 */
+	public static BoardCorpus open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new BoardCorpus(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * builds board number index directly from the mapped file
+	 * @param index
+	 * @return
+	 */
+	public MinesweeperBoard get(long index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException();
+
+		LongBuffer segment = segments[(int) (index / recordsPerSegment)].duplicate();
+		segment.position((int) (index % recordsPerSegment) * (recordSize / Long.BYTES));
+		return new MinesweeperBoard(width, height, segment);
+	}
+
+	/**
+	 * returns every board in order, each built only when the stream reaches it
+	 * @return
+	 */
+	public Stream<MinesweeperBoard> stream() {
+		return LongStream.range(0, size).mapToObj(this::get);
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Appends boards of one size to a new corpus file.  The board count in the header is filled in on close
+	 */
+	public static class Writer implements Closeable {
+		private final FileChannel channel;
+		private final int width;
+		private final int height;
+		private final ByteBuffer record;
+		private long size;
+
+		public Writer(Path file, int width, int height) throws IOException {
+			if (width < 1 || height < 1)
+				throw new IllegalArgumentException();
+
+			this.width = width;
+			this.height = height;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			this.record = ByteBuffer.allocate(Math.max(HEADER_SIZE, MinesweeperBoard.getMaskWords(width, height) * Long.BYTES) * 256);
+			writeHeader();
+			channel.position(HEADER_SIZE);
+		}
+
+		/**
+		 * appends a board
+		 * @param board
+		 * @throws IOException
+		 * @throws IllegalArgumentException if the board is not the size of this corpus
+		 */
+		public void write(MinesweeperBoard board) throws IOException {
+			if (board.getWidth() != width || board.getHeight() != height)
+				throw new IllegalArgumentException();
+
+			long[] mask = board.getMineMask();
+			if (record.remaining() < mask.length * Long.BYTES)
+				flush();
+			for (long word : mask)
+				record.putLong(word);
+			size++;
+		}
+
+		public void close() throws IOException {
+			try {
+				flush();
+				writeHeader();
+			} finally {
+				channel.close();
+			}
+		}
+
+		private void flush() throws IOException {
+			record.flip();
+			while (record.hasRemaining())
+				channel.write(record);
+			record.clear();
+		}
+
+		private void writeHeader() throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+					.putInt(MAGIC)
+					.putInt(VERSION)
+					.putInt(width)
+					.putInt(height)
+					.putLong(size)
+					.flip();
+			while (header.hasRemaining())
+				channel.write(header, header.position());
+		}
+	}
+
+	/**
+	 * writes boards 0 to COUNT - 1 of a seeded run, exactly as {@link Simulation} would play them, to a new corpus
+	 *
+	 * usage: BoardCorpus SPEC COUNT SEED FILE
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 4) {
+			System.err.println("usage: BoardCorpus SPEC COUNT SEED FILE");
+			System.exit(2);
+		}
+
+		GameSpec spec = GameSpec.parse(args[0]);
+		long count = Long.parseLong(args[1]), seed = Long.parseLong(args[2]);
+		try (Writer writer = new Writer(Paths.get(args[3]), spec.getWidth(), spec.getHeight())) {
+			for (long i = 0; i < count; i++)
+				writer.write(spec.buildBoard(seed, i));
+		}
+	}
+}
@@ -0,0 +1,457 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Depth-first enumerator over the tiles of one independent group of constraints.  The group is compiled before the
+ * search: tiles are remapped to component-local bit indices and every constraint becomes a long[] mask over them plus
+ * its target sum, so checking a constraint is a pair of bit counts.  A single assignment is held in two masks (assigned
+ * tiles and mine tiles), mutated in place and undone on backtrack through a trail, so memory is linear in the number of
+ * tiles.  After every assignment, only the constraints touching the assigned tile are checked, and any tiles they force
+ * (all remaining mines, or all remaining empty) are assigned immediately.
+ *
+ * Large components are counted in parallel: the first few branching levels are explored once, and every subtree below
+ * them becomes a fork-join task with its own copy of the assignment and its own tally, which are added up at the end.
+ */
+public class ComponentSearch {
+	/**
+	 * components with at least this many tiles are counted by several tasks when more than one thread is available
+	 */
+	private static final int PARALLEL_THRESHOLD = 32;
+	/**
+	 * the number of branches a task visits between updates of a shared search budget
+	 */
+	private static final int BUDGET_CHUNK = 1024;
+
+	private final Point[] points;
+	private final int words;
+	private final long[][] masks;
+	private final int[] sums;
+	private final int[] sizes;
+	private final int[][] pointConstraints;
+
+	private final long[] assigned;
+	private final long[] mines;
+	private final int[] trail;
+	private int trailSize;
+	private int mineCount;
+	private Runnable onSolution;
+	private long nodes;
+	private long maxNodes = Long.MAX_VALUE;
+	private boolean stopped;
+	private RandomGenerator random;
+	private SharedBudget budget;
+	private long reportedNodes;
+
+	public ComponentSearch(List<Constraint> constraints) {
+		this(constraints, getPoints(constraints));
+	}
+
+	/**
+	 * @param constraints
+	 * @param points every tile of the constraints, in the order solutions will list them
+	 */
+	public ComponentSearch(List<Constraint> constraints, Point[] points) {
+		Map<Point, Integer> indices = new HashMap<>();
+		for (Point p : points)
+			indices.put(p, indices.size());
+
+		this.points = points;
+		words = (points.length + 63) >>> 6;
+		masks = new long[constraints.size()][words];
+		sums = new int[constraints.size()];
+		sizes = new int[constraints.size()];
+
+		int[] degree = new int[points.length];
+		for (int c = 0; c < constraints.size(); c++) {
+			Constraint constraint = constraints.get(c);
+			sums[c] = constraint.getSum();
+			sizes[c] = constraint.getPoints().size();
+			for (Point p : constraint.getPoints()) {
+				int i = indices.get(p);
+				masks[c][i >>> 6] |= 1L << i;
+				degree[i]++;
+			}
+		}
+
+		pointConstraints = new int[points.length][];
+		for (int p = 0; p < points.length; p++)
+			pointConstraints[p] = new int[degree[p]];
+		for (int c = 0; c < masks.length; c++)
+			for (int w = 0; w < words; w++)
+				for (long bits = masks[c][w]; bits != 0; bits &= bits - 1) {
+					int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+					pointConstraints[p][--degree[p]] = c;
+				}
+
+		assigned = new long[words];
+		mines = new long[words];
+		trail = new int[points.length];
+	}
+
+	/**
+	 * creates a search over the same compiled constraints, starting from a copy of another search's assignment
+	 * @param parent
+	 */
+	private ComponentSearch(ComponentSearch parent) {
+		points = parent.points;
+		words = parent.words;
+		masks = parent.masks;
+		sums = parent.sums;
+		sizes = parent.sizes;
+		pointConstraints = parent.pointConstraints;
+
+		assigned = parent.assigned.clone();
+		mines = parent.mines.clone();
+		trail = parent.trail.clone();
+		trailSize = parent.trailSize;
+		mineCount = parent.mineCount;
+		budget = parent.budget;
+	}
+
+	public Point[] getPoints() {
+		return points;
+	}
+
+	private static Point[] getPoints(List<Constraint> constraints) {
+		Set<Point> points = new LinkedHashSet<>();
+		for (Constraint c : constraints)
+			points.addAll(c.getPoints());
+
+		return points.toArray(new Point[points.size()]);
+	}
+
+	/**
+	 * calls visitor once for every satisfying configuration.  The map passed to the visitor is reused between calls
+	 * @param visitor
+	 */
+	public void search(Consumer<Map<Point, Boolean>> visitor) {
+		Map<Point, Boolean> configuration = new HashMap<>();
+		onSolution = () -> {
+			for (int p = 0; p < points.length; p++)
+				configuration.put(points[p], isMine(p));
+			visitor.accept(configuration);
+		};
+		search();
+	}
+
+	/**
+	 * tallies every satisfying configuration without materializing any of them
+	 * @return
+	 */
+	public ComponentSolution count() {
+		return count(Long.MAX_VALUE);
+	}
+
+	/**
+	 * tallies every satisfying configuration, giving up once the search has visited more than maxNodes branches
+	 * @param maxNodes
+	 * @return the tally, or null if the budget ran out before the search completed
+	 */
+	public ComponentSolution count(long maxNodes) {
+		int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+		if (points.length >= PARALLEL_THRESHOLD && parallelism > 1)
+			return count(maxNodes, 35 - Integer.numberOfLeadingZeros(parallelism - 1));
+
+		ComponentSolution solution = new ComponentSolution(points);
+		onSolution = () -> solution.record(mines, mineCount);
+		this.maxNodes = maxNodes;
+		nodes = 0;
+		stopped = false;
+		search();
+
+		return stopped ? null : solution;
+	}
+
+	/**
+	 * Approximates the tally by random-restart backtracking: each restart explores values in random order and records
+	 * the first satisfying configuration it reaches.  Samples are not exactly uniform over configurations, so the result
+	 * is an estimate whose tile probabilities carry a sampling error of about sqrt(p(1-p)/samples)
+	 * @param samples the number of configurations to record
+	 * @param maxNodesPerSample the budget of each restart
+	 * @param random
+	 * @return
+	 */
+	public ComponentSolution sample(int samples, long maxNodesPerSample, RandomGenerator random) {
+		ComponentSolution solution = new ComponentSolution(points, true);
+		onSolution = () -> {
+			solution.record(mines, mineCount);
+			stopped = true;
+		};
+		this.random = random;
+
+		try {
+			for (int attempt = 0; solution.getSampleCount() < samples && attempt < samples * 4; attempt++) {
+				maxNodes = maxNodesPerSample;
+				nodes = 0;
+				stopped = false;
+				search();
+			}
+		} finally {
+			this.random = null;
+		}
+
+		return solution;
+	}
+
+	/**
+	 * Tallies every satisfying configuration by splitting the search tree into subtrees at the given depth, each counted
+	 * by its own fork-join task.  There are up to 2^splitDepth subtrees, many more than threads, so that idle threads
+	 * can steal subtrees from busy ones when the tree is uneven.  The budget is shared by all tasks, and as with the
+	 * serial search, the count fails exactly when the whole tree has more than maxNodes branches
+	 * @param maxNodes
+	 * @param splitDepth
+	 * @return the tally, or null if the budget ran out before the search completed
+	 */
+	private ComponentSolution count(long maxNodes, int splitDepth) {
+		ComponentSolution solution = new ComponentSolution(points);
+		if (!isFeasible())
+			return solution;
+
+		onSolution = () -> solution.record(mines, mineCount);
+		budget = new SharedBudget(maxNodes);
+		this.maxNodes = 0;
+		nodes = 0;
+		reportedNodes = 0;
+		stopped = false;
+
+		try {
+			List<Subtree> subtrees = new ArrayList<>();
+			split(0, splitDepth, subtrees);
+			reportNodes();
+			if (!stopped)
+				ForkJoinTask.invokeAll(subtrees);
+			if (budget.nodes.get() > maxNodes)
+				return null;
+
+			for (Subtree subtree : subtrees)
+				solution.add(subtree.solution);
+			return solution;
+		} finally {
+			budget = null;
+			this.maxNodes = Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * explores the first depth branching levels exactly as {@link #search(int)} would, handing each subtree below them
+	 * to a new task instead of searching it
+	 * @param next
+	 * @param depth
+	 * @param subtrees receives the tasks
+	 */
+	private void split(int next, int depth, List<Subtree> subtrees) {
+		while (next < points.length && isAssigned(next))
+			next++;
+
+		if (next == points.length) {
+			onSolution.run();
+			return;
+		}
+		if (depth == 0) {
+			subtrees.add(new Subtree(new ComponentSearch(this), next));
+			return;
+		}
+
+		for (int value = 0; value < 2 && !stopped; value++) {
+			if (++nodes > maxNodes && !extendBudget()) {
+				stopped = true;
+				return;
+			}
+
+			int mark = trailSize;
+			if (assign(next, value == 0) && propagate(mark))
+				split(next + 1, depth - 1, subtrees);
+			undo(mark);
+		}
+	}
+
+	/**
+	 * adds the branches visited since the last report to the shared budget and, if it is not used up, allows this task
+	 * another chunk of branches
+	 * @return false if there is no shared budget or it is used up
+	 */
+	private boolean extendBudget() {
+		if (budget == null)
+			return false;
+
+		reportNodes();
+		if (budget.isExhausted || budget.nodes.get() > budget.maxNodes) {
+			budget.isExhausted = true;
+			return false;
+		}
+
+		maxNodes = nodes + BUDGET_CHUNK;
+		return true;
+	}
+
+	private void reportNodes() {
+		budget.nodes.addAndGet(nodes - reportedNodes);
+		reportedNodes = nodes;
+	}
+
+	private boolean isFeasible() {
+		for (int c = 0; c < sums.length; c++)
+			if (sums[c] < 0 || sums[c] > sizes[c])
+				return false;
+
+		return true;
+	}
+
+	private void search() {
+		if (isFeasible())
+			search(0);
+	}
+
+	private void search(int next) {
+		while (next < points.length && isAssigned(next))
+			next++;
+
+		if (next == points.length) {
+			onSolution.run();
+			return;
+		}
+
+		boolean first = random == null || random.nextBoolean();
+		for (int value = 0; value < 2 && !stopped; value++) {
+			if (++nodes > maxNodes && !extendBudget()) {
+				stopped = true;
+				return;
+			}
+
+			int mark = trailSize;
+			if (assign(next, first == (value == 0)) && propagate(mark))
+				search(next + 1);
+			undo(mark);
+		}
+	}
+
+	private boolean isAssigned(int p) {
+		return (assigned[p >>> 6] & (1L << p)) != 0;
+	}
+
+	private boolean isMine(int p) {
+		return (mines[p >>> 6] & (1L << p)) != 0;
+	}
+
+	private int countMines(int c) {
+		int count = 0;
+		for (int w = 0; w < words; w++)
+			count += Long.bitCount(masks[c][w] & mines[w]);
+
+		return count;
+	}
+
+	private int countUnassigned(int c) {
+		int count = sizes[c];
+		for (int w = 0; w < words; w++)
+			count -= Long.bitCount(masks[c][w] & assigned[w]);
+
+		return count;
+	}
+
+	/**
+	 * assigns a value to point p and checks every constraint touching it
+	 * @return false if any of those constraints can no longer be satisfied
+	 */
+	private boolean assign(int p, boolean isMine) {
+		assigned[p >>> 6] |= 1L << p;
+		if (isMine) {
+			mines[p >>> 6] |= 1L << p;
+			mineCount++;
+		}
+		trail[trailSize++] = p;
+
+		for (int c : pointConstraints[p]) {
+			int constraintMines = countMines(c);
+			if (constraintMines > sums[c] || constraintMines + countUnassigned(c) < sums[c])
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * assigns every tile forced by a constraint touched since the trail was at position from
+	 * @return false if propagation leads to a contradiction
+	 */
+	private boolean propagate(int from) {
+		for (int i = from; i < trailSize; i++)
+			for (int c : pointConstraints[trail[i]]) {
+				int unassigned = countUnassigned(c);
+				if (unassigned == 0)
+					continue;
+
+				int constraintMines = countMines(c);
+				boolean forced;
+				if (constraintMines == sums[c])
+					forced = false;
+				else if (constraintMines + unassigned == sums[c])
+					forced = true;
+				else
+					continue;
+
+				for (int w = 0; w < words; w++)
+					for (long bits = masks[c][w] & ~assigned[w]; bits != 0; bits &= bits - 1)
+						if (!assign((w << 6) + Long.numberOfTrailingZeros(bits), forced))
+							return false;
+			}
+
+		return true;
+	}
+
+	private void undo(int mark) {
+		while (trailSize > mark) {
+			int p = trail[--trailSize];
+			if (isMine(p))
+				mineCount--;
+			assigned[p >>> 6] &= ~(1L << p);
+			mines[p >>> 6] &= ~(1L << p);
+		}
+	}
+
+	/**
+	 * the branch budget of a search split across tasks
+	 */
+	private static class SharedBudget {
+		private final long maxNodes;
+		private final AtomicLong nodes = new AtomicLong();
+		private volatile boolean isExhausted;
+
+		SharedBudget(long maxNodes) {
+			this.maxNodes = maxNodes;
+		}
+	}
+
+	/**
+	 * counts the configurations below one branch of a split search into its own tally
+	 */
+	private static class Subtree extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final ComponentSearch search;
+		private final int next;
+		private ComponentSolution solution;
+
+		Subtree(ComponentSearch search, int next) {
+			this.search = search;
+			this.next = next;
+		}
+
+		protected void compute() {
+			ComponentSolution solution = new ComponentSolution(search.points);
+			search.onSolution = () -> solution.record(search.mines, search.mineCount);
+			search.maxNodes = 0;
+			search.search(next);
+			search.reportNodes();
+			this.solution = solution;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package minesweeper;
+
+import java.awt.Point;
+
+/**
+ * tallies the satisfying configurations of one independent group of constraints without storing them.  Solutions are
+ * grouped by the number of mines they place, so that groups can later be weighted against the number of mines left on
+ * the rest of the board
+ */
+public class ComponentSolution {
+	private final Point[] points;
+	private final double[] solutions;
+	private final double[][] tileMines;
+	private final boolean isSampled;
+	private int sampleCount;
+
+	public ComponentSolution(Point[] points) {
+		this(points, false);
+	}
+
+	/**
+	 * @param points
+	 * @param isSampled whether the recorded configurations are a random sample rather than every satisfying
+	 * configuration
+	 */
+	public ComponentSolution(Point[] points, boolean isSampled) {
+		this.points = points;
+		this.solutions = new double[points.length + 1];
+		this.tileMines = new double[points.length + 1][points.length];
+		this.isSampled = isSampled;
+	}
+
+	/**
+	 * shares the tallies of another solution over the same constraint structure, with its tiles in the same order, for a
+	 * different set of points.  Neither solution may record anything further
+	 * @param points
+	 * @param counts
+	 */
+	ComponentSolution(Point[] points, ComponentSolution counts) {
+		this.points = points;
+		this.solutions = counts.solutions;
+		this.tileMines = counts.tileMines;
+		this.isSampled = counts.isSampled;
+		this.sampleCount = counts.sampleCount;
+	}
+
+	public Point[] getPoints() {
+		return points;
+	}
+
+	/**
+	 * returns the largest number of mines placed by any solution
+	 * @return
+	 */
+	public int getMaxMines() {
+		for (int mines = solutions.length - 1; mines >= 0; mines--)
+			if (solutions[mines] > 0)
+				return mines;
+
+		return -1;
+	}
+
+	/**
+	 * returns the number of satisfying configurations placing exactly the given number of mines
+	 * @param mines
+	 * @return
+	 */
+	public double getSolutions(int mines) {
+		return solutions[mines];
+	}
+
+	/**
+	 * returns the number of satisfying configurations placing exactly the given number of mines which place a mine on
+	 * the tile at index tile of {@link #getPoints()}
+	 * @param mines
+	 * @param tile
+	 * @return
+	 */
+	public double getTileMines(int mines, int tile) {
+		return tileMines[mines][tile];
+	}
+
+	public boolean isExact() {
+		return !isSampled;
+	}
+
+	/**
+	 * returns the number of configurations recorded
+	 * @return
+	 */
+	public int getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * returns the standard error of a tile probability estimated from this tally, which is 0 unless it was sampled
+	 * @param probability
+	 * @return
+	 */
+	public double getStandardError(double probability) {
+		return isSampled ? Math.sqrt(probability * (1 - probability) / sampleCount) : 0;
+	}
+
+	public boolean isEmpty() {
+		return getMaxMines() < 0;
+	}
+
+	/**
+	 * adds the tally of another part of the same component's configurations
+	 * @param other a tally over the same points
+	 */
+	void add(ComponentSolution other) {
+		for (int mines = 0; mines < solutions.length; mines++) {
+			solutions[mines] += other.solutions[mines];
+			for (int p = 0; p < points.length; p++)
+				tileMines[mines][p] += other.tileMines[mines][p];
+		}
+		sampleCount += other.sampleCount;
+	}
+
+	/**
+	 * records one satisfying configuration
+	 * @param mineMask a bit set for each tile holding a mine, indexed as {@link #getPoints()}
+	 * @param mines the number of mines in mineMask
+	 */
+	void record(long[] mineMask, int mines) {
+		solutions[mines]++;
+		sampleCount++;
+		double[] counts = tileMines[mines];
+		for (int w = 0; w < mineMask.length; w++)
+			for (long bits = mineMask[w]; bits != 0; bits &= bits - 1)
+				counts[(w << 6) + Long.numberOfTrailingZeros(bits)]++;
+	}
+}
@@ -1,4 +1,8 @@
+package minesweeper;
+
 import java.awt.Point;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -19,6 +23,19 @@ public class Constraint {
 		return points;
 	}
 
+	public int getSum() {
+		return sum;
+	}
+
+	/**
+	 * empties this constraint for reuse as a new one with the given sum
+	 * @param sum
+	 */
+	void clear(int sum) {
+		points.clear();
+		this.sum = sum;
+	}
+
 	public String toString() {
 		String pString = points.stream()
 				.sorted((p1, p2) -> {
@@ -32,13 +49,28 @@ public class Constraint {
 	}
 
 	/**
-	 * Simplify this constraint based on the knowledge provided in knownTiles
+	 * Simplify this constraint based on the knowledge provided in knownTiles.  Only this constraint's own points are
+	 * looked up, so the cost does not grow with the number of known tiles
 	 * @param knownTiles
 	 */
 	public void reduce(Map<Point, Boolean> knownTiles) {
-		for (Map.Entry<Point, Boolean> entry : knownTiles.entrySet())
-			if (points.remove(entry.getKey()))
-				sum -= entry.getValue() ? 1 : 0;
+		for (Iterator<Point> iterator = points.iterator(); iterator.hasNext(); ) {
+			Boolean isMine = knownTiles.get(iterator.next());
+			if (isMine != null) {
+				iterator.remove();
+				sum -= isMine ? 1 : 0;
+			}
+		}
+	}
+
+	/**
+	 * Simplify this constraint based on the newly discovered state of a single tile
+	 * @param p
+	 * @param isMine
+	 */
+	public void reduce(Point p, boolean isMine) {
+		if (points.remove(p))
+			sum -= isMine ? 1 : 0;
 	}
 
 	/**
@@ -50,7 +82,11 @@ public class Constraint {
 		if (sum != 0 && sum != points.size())
 			return null;
 
-		return points.stream().collect(Collectors.toMap(p -> p, p -> sum != 0));
+		Map<Point, Boolean> configuration = new HashMap<>();
+		for (Point p : points)
+			configuration.put(p, sum != 0);
+
+		return configuration;
 	}
 
 	public Boolean isTriviallySatisfied() {
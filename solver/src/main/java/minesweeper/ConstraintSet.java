@@ -0,0 +1,518 @@
+package minesweeper;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+
+public class ConstraintSet {
+	private final Set<Constraint> constraints;
+	private final Map<Point, Set<Constraint>> constraintsByPoint;
+	private final Deque<Constraint> dirtyConstraints;
+
+	/**
+	 * emptied sets of constraintsByPoint, kept to be handed to the next tile that needs one rather than reallocated
+	 */
+	private final Deque<Set<Constraint>> spareSets;
+
+	/**
+	 * constraints which have left the set, kept to be handed out by {@link #newConstraint(int)} rather than reallocated.
+	 * The constraint last returned by {@link #findTriviallySatisfiedConstraint()} joins them on the next call
+	 */
+	private final Deque<Constraint> spareConstraints;
+	private Constraint solvedConstraint;
+
+	/**
+	 * the last count of every component, by each of its constraints.  Changing a constraint drops the count of its whole
+	 * component, so a component whose constraints all still share one entry is unchanged since it was counted
+	 */
+	private final Map<Constraint, CachedComponent> componentCache;
+
+	/**
+	 * the number of branches exact enumeration of a single component may visit before it is sampled instead
+	 */
+	private long maxSearchNodes = Long.MAX_VALUE;
+	private int samplesPerComponent = 2000;
+	private double probabilityError;
+
+	private SplittableRandom random;
+	private SolverMetrics metrics;
+	private PatternCache patternCache;
+
+	public ConstraintSet() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * @param random the source of all randomness used when sampling components, split once per component
+	 */
+	public ConstraintSet(SplittableRandom random) {
+		this.random = random;
+		constraints = new LinkedHashSet<>();
+		constraintsByPoint = new HashMap<>();
+		dirtyConstraints = new ArrayDeque<>();
+		spareSets = new ArrayDeque<>();
+		spareConstraints = new ArrayDeque<>();
+		componentCache = new HashMap<>();
+	}
+
+	/**
+	 * removes every constraint, keeping the capacity of the underlying collections for the next game
+	 * @param random the source of all randomness from now on
+	 */
+	public void reset(SplittableRandom random) {
+		this.random = random;
+		for (Constraint c : constraints)
+			recycle(c);
+		constraints.clear();
+		if (solvedConstraint != null)
+			recycle(solvedConstraint);
+		solvedConstraint = null;
+		for (Set<Constraint> touching : constraintsByPoint.values())
+			recycle(touching);
+		constraintsByPoint.clear();
+		dirtyConstraints.clear();
+		componentCache.clear();
+		probabilityError = 0;
+	}
+
+	/**
+	 * returns and removes a constraint which is resolved to contain either all empty tiles or all mines, or null if no
+	 * such constraint exists.  Only constraints queued by {@link #add(Constraint)} or {@link #markKnown(Point, boolean)}
+	 * are examined.  The constraint is reused once this is called again
+	 * @return
+	 */
+	public Constraint findTriviallySatisfiedConstraint() {
+		if (solvedConstraint != null)
+			recycle(solvedConstraint);
+		solvedConstraint = null;
+
+		while (!dirtyConstraints.isEmpty()) {
+			Constraint c = dirtyConstraints.poll();
+			if (constraints.contains(c) && c.isTriviallySatisfied()) {
+				remove(c);
+				return solvedConstraint = c;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * returns an empty constraint with the given sum, reusing one which has left the set if there is any.  Its points
+	 * are filled in through {@link Constraint#getPoints()} before it is added
+	 * @param sum
+	 * @return
+	 */
+	public Constraint newConstraint(int sum) {
+		Constraint c = spareConstraints.poll();
+		if (c == null)
+			return new Constraint(new HashSet<>(), sum);
+
+		c.clear(sum);
+		return c;
+	}
+
+	/**
+	 * hands a constraint which is not in the set back for reuse by {@link #newConstraint(int)}
+	 * @param c
+	 */
+	public void recycle(Constraint c) {
+		spareConstraints.push(c);
+	}
+
+	/**
+	 * bounds the work of {@link #calculateProbabilities(long, long)}.  A component whose exact enumeration visits more than
+	 * maxSearchNodes branches has its probabilities estimated from samples instead
+	 * @param maxSearchNodes
+	 * @param samplesPerComponent
+	 */
+	public void setSearchBudget(long maxSearchNodes, int samplesPerComponent) {
+		if (maxSearchNodes < 1 || samplesPerComponent < 1)
+			throw new IllegalArgumentException();
+
+		this.maxSearchNodes = maxSearchNodes;
+		this.samplesPerComponent = samplesPerComponent;
+	}
+
+	/**
+	 * returns the largest standard error of any probability returned by the last call to
+	 * {@link #calculateProbabilities(long, long)}, which is 0 if every component was enumerated exactly
+	 * @return
+	 */
+	public double getProbabilityError() {
+		return probabilityError;
+	}
+
+	/**
+	 * looks components up in a cache shared with other games before enumerating them, or stops using one if patternCache
+	 * is null
+	 * @param patternCache
+	 */
+	public void setPatternCache(PatternCache patternCache) {
+		this.patternCache = patternCache;
+	}
+
+	/**
+	 * records the work of calculating probabilities into metrics, or stops recording if metrics is null
+	 * @param metrics
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * adds a constraint, which is expected to have already been reduced by every known tile.  Once it leaves the set,
+	 * the constraint may be reused by {@link #newConstraint(int)}
+	 * @param c
+	 * @return
+	 */
+	public boolean add(Constraint c) {
+		if (c.getPoints().isEmpty() || !constraints.add(c))
+			return false;
+
+		for (Point p : c.getPoints()) {
+			Set<Constraint> touching = constraintsByPoint.get(p);
+			if (touching == null)
+				constraintsByPoint.put(p, touching = newSet());
+			touching.add(c);
+		}
+		if (c.isTriviallySatisfied())
+			dirtyConstraints.add(c);
+
+		return true;
+	}
+
+	/**
+	 * reduces every constraint touching the given tile by its newly discovered state, queueing those that become
+	 * trivially satisfied and dropping those left without any tiles
+	 * @param p
+	 * @param isMine
+	 */
+	public void markKnown(Point p, boolean isMine) {
+		Set<Constraint> touching = constraintsByPoint.remove(p);
+		if (touching == null)
+			return;
+
+		for (Constraint c : touching) {
+			invalidate(c);
+			c.reduce(p, isMine);
+			if (c.getPoints().isEmpty()) {
+				constraints.remove(c);
+				recycle(c);
+			} else if (c.isTriviallySatisfied())
+				dirtyConstraints.add(c);
+		}
+		recycle(touching);
+	}
+
+	/**
+	 * returns the tiles whose state follows from combining constraints, mapped to true for mines and false for empty
+	 * tiles.  This is much cheaper than enumeration and resolves most positions no single constraint does
+	 * @return
+	 */
+	public Map<Point, Boolean> findForcedTiles() {
+		return new LinearDeduction(constraints).findForcedTiles();
+	}
+
+	private void remove(Constraint c) {
+		invalidate(c);
+		constraints.remove(c);
+		for (Point p : c.getPoints()) {
+			Set<Constraint> touching = constraintsByPoint.get(p);
+			touching.remove(c);
+			if (touching.isEmpty())
+				recycle(constraintsByPoint.remove(p));
+		}
+	}
+
+	private Set<Constraint> newSet() {
+		Set<Constraint> set = spareSets.poll();
+		return set == null ? new LinkedHashSet<>() : set;
+	}
+
+	private void recycle(Set<Constraint> set) {
+		set.clear();
+		spareSets.push(set);
+	}
+
+	/**
+	 * drops the cached count of the component containing a constraint which is about to change
+	 * @param c
+	 */
+	private void invalidate(Constraint c) {
+		CachedComponent cached = componentCache.remove(c);
+		if (cached != null)
+			for (Constraint member : cached.constraints)
+				componentCache.remove(member);
+	}
+
+	public String toString() {
+		return constraints.stream().map(Constraint::toString).collect(Collectors.joining("\n"));
+	}
+
+	/**
+	 * Finds the probability of any given tile having a mine.  This is done by:
+	 *  1) combining all intersecting constraints (have at least one tile in common)
+	 *  2) counting the satisfying configurations of each group, by the number of mines they place
+	 *  3) weighting each combination of groups by the number of ways the remaining mines fit in the unconstrained tiles
+	 * @param remainingMines the number of mines not yet flagged
+	 * @param unexploredTiles the number of tiles neither revealed nor flagged, including those in constraints
+	 * @return The list of tiles and their probabilities.  Their sum is the expected number of mines among them
+	 */
+	public Map<Point, Double> calculateProbabilities(long remainingMines, long unexploredTiles) {
+		long start = metrics == null ? 0 : System.nanoTime();
+		Map<Point, Double> probabilities = calculateProbabilities(countSatisfyingConfigurations(), remainingMines, unexploredTiles);
+		if (metrics != null)
+			metrics.probabilityNanos.record(System.nanoTime() - start);
+
+		return probabilities;
+	}
+
+	private Map<Point, Double> calculateProbabilities(List<ComponentSolution> components, long remainingMines, long unexploredTiles) {
+		Map<Point, Double> probabilities = new HashMap<>();
+		probabilityError = 0;
+		if (components.isEmpty() || components.stream().anyMatch(ComponentSolution::isEmpty))
+			return probabilities;
+
+		int frontierTiles = components.stream().mapToInt(c -> c.getPoints().length).sum();
+		int maxMines = components.stream().mapToInt(ComponentSolution::getMaxMines).sum();
+		double[] weights = getRemainderWeights(remainingMines, unexploredTiles - frontierTiles, maxMines);
+
+		for (int c = 0; c < components.size(); c++) {
+			double[] others = new double[]{1};
+			for (int o = 0; o < components.size(); o++)
+				if (o != c)
+					others = convolve(others, components.get(o));
+
+			ComponentSolution component = components.get(c);
+			double[] tileWeights = new double[component.getPoints().length];
+			double total = 0;
+			for (int mines = 0; mines <= component.getMaxMines(); mines++) {
+				double weight = 0;
+				for (int otherMines = 0; otherMines < others.length; otherMines++)
+					weight += others[otherMines] * weights[mines + otherMines];
+				if (weight == 0)
+					continue;
+
+				total += weight * component.getSolutions(mines);
+				for (int p = 0; p < tileWeights.length; p++)
+					tileWeights[p] += weight * component.getTileMines(mines, p);
+			}
+
+			for (int p = 0; p < tileWeights.length; p++) {
+				double probability = tileWeights[p] / total;
+				probabilities.put(component.getPoints()[p], probability);
+				probabilityError = Math.max(probabilityError, component.getStandardError(probability));
+			}
+		}
+
+		return probabilities;
+	}
+
+	/**
+	 * returns, for every possible number of mines in constrained tiles, a value proportional to the number of ways the
+	 * rest of the remaining mines can be placed among the unconstrained tiles.  If no split is possible (the mine count
+	 * is inconsistent with the constraints), every split is weighted equally instead.  Only ratios of neighboring
+	 * binomials are evaluated, so the cost does not depend on the size of the board
+	 * @param remainingMines
+	 * @param unconstrainedTiles
+	 * @param maxMines
+	 * @return
+	 */
+	private static double[] getRemainderWeights(long remainingMines, long unconstrainedTiles, int maxMines) {
+		double[] logWeights = new double[maxMines + 1];
+		double max = Double.NEGATIVE_INFINITY;
+		for (int mines = 0; mines <= maxMines; mines++) {
+			long rest = remainingMines - mines;
+			if (rest < 0 || rest > unconstrainedTiles)
+				logWeights[mines] = Double.NEGATIVE_INFINITY;
+			else if (mines == 0 || logWeights[mines - 1] == Double.NEGATIVE_INFINITY)
+				logWeights[mines] = 0;
+			else // C(n, rest) / C(n, rest + 1) = (rest + 1) / (n - rest)
+				logWeights[mines] = logWeights[mines - 1] + Math.log(rest + 1) - Math.log(unconstrainedTiles - rest);
+			max = Math.max(max, logWeights[mines]);
+		}
+
+		double[] weights = new double[maxMines + 1];
+		for (int mines = 0; mines <= maxMines; mines++)
+			weights[mines] = max == Double.NEGATIVE_INFINITY ? 1 : Math.exp(logWeights[mines] - max);
+
+		return weights;
+	}
+
+	/**
+	 * combines a distribution of solution counts by number of mines with that of another component.  The result is
+	 * rescaled so that large frontiers do not overflow
+	 * @param distribution
+	 * @param component
+	 * @return
+	 */
+	private static double[] convolve(double[] distribution, ComponentSolution component) {
+		double[] result = new double[distribution.length + component.getMaxMines()];
+		double max = 0;
+		for (int a = 0; a < distribution.length; a++)
+			for (int b = 0; b <= component.getMaxMines(); b++)
+				max = Math.max(max, result[a + b] += distribution[a] * component.getSolutions(b));
+
+		for (int i = 0; i < result.length; i++)
+			result[i] /= max;
+
+		return result;
+	}
+
+	/**
+	 * Returns all groupings of constraints that intersect each other, either directly or through a chain of other
+	 * constraints.  Tiles are partitioned with a union-find so that a constraint bridging two earlier groups merges them
+	 * @return
+	 */
+	private List<List<Constraint>> getIntersectingConstraints() {
+		Map<Point, Integer> indices = new HashMap<>();
+		for (Constraint constraint : this.constraints)
+			for (Point p : constraint.getPoints())
+				indices.putIfAbsent(p, indices.size());
+
+		UnionFind components = new UnionFind(indices.size());
+		for (Constraint constraint : this.constraints) {
+			Iterator<Point> points = constraint.getPoints().iterator();
+			if (!points.hasNext())
+				continue;
+
+			int first = indices.get(points.next());
+			while (points.hasNext())
+				components.union(first, indices.get(points.next()));
+		}
+
+		Map<Integer, List<Constraint>> groups = new LinkedHashMap<>();
+		for (Constraint constraint : this.constraints)
+			if (!constraint.getPoints().isEmpty())
+				groups.computeIfAbsent(components.find(indices.get(constraint.getPoints().iterator().next())), k -> new ArrayList<>())
+						.add(constraint);
+
+		return new ArrayList<>(groups.values());
+	}
+
+	/**
+	 * returns all variations of mine configurations based on the constraints contained in this ConstraintSet.  Each
+	 * independent group of constraints is enumerated as its own task on the common fork-join pool
+	 * @return
+	 */
+	public List<Map<Point, Boolean>> findSatisfyingConfigurations() {
+		List<ForkJoinTask<List<Map<Point, Boolean>>>> tasks = getIntersectingConstraints().stream()
+				.map(group -> ForkJoinTask.adapt(() -> findSatisfyingConfigurations(group)))
+				.collect(Collectors.toList());
+
+		List<Map<Point, Boolean>> satisfyingConfigurations = new ArrayList<>();
+		for (ForkJoinTask<List<Map<Point, Boolean>>> task : ForkJoinTask.invokeAll(tasks))
+			satisfyingConfigurations.addAll(task.join());
+
+		return satisfyingConfigurations;
+	}
+
+	/**
+	 * counts the satisfying configurations of each independent group of constraints.  Groups unchanged since the last
+	 * call reuse their previous count; the rest are counted each as its own task on the common fork-join pool.
+	 * Components which exceed the search budget are sampled
+	 * @return
+	 */
+	private List<ComponentSolution> countSatisfyingConfigurations() {
+		List<List<Constraint>> groups = getIntersectingConstraints();
+		ComponentSolution[] solutions = new ComponentSolution[groups.size()];
+		List<ForkJoinTask<ComponentSolution>> tasks = new ArrayList<>();
+		List<Integer> counted = new ArrayList<>();
+		for (int g = 0; g < groups.size(); g++) {
+			List<Constraint> group = groups.get(g);
+			CachedComponent cached = getCachedComponent(group);
+			if (cached != null) {
+				solutions[g] = cached.solution;
+				continue;
+			}
+
+			SplittableRandom componentRandom = random.split();
+			tasks.add(ForkJoinTask.adapt(() -> countSatisfyingConfigurations(group, componentRandom)));
+			counted.add(g);
+		}
+
+		ForkJoinTask.invokeAll(tasks);
+		for (int t = 0; t < tasks.size(); t++) {
+			int g = counted.get(t);
+			solutions[g] = tasks.get(t).join();
+			CachedComponent cached = new CachedComponent(groups.get(g), solutions[g]);
+			for (Constraint c : cached.constraints)
+				componentCache.put(c, cached);
+		}
+
+		if (metrics != null)
+			metrics.reusedComponents.add(groups.size() - tasks.size());
+		return Arrays.asList(solutions);
+	}
+
+	/**
+	 * returns the cached count of a group of constraints, or null if the group has changed since it was counted
+	 * @param group
+	 * @return
+	 */
+	private CachedComponent getCachedComponent(List<Constraint> group) {
+		CachedComponent cached = componentCache.get(group.get(0));
+		if (cached == null || cached.constraints.size() != group.size())
+			return null;
+
+		for (Constraint c : group)
+			if (componentCache.get(c) != cached)
+				return null;
+
+		return cached;
+	}
+
+	private ComponentSolution countSatisfyingConfigurations(List<Constraint> group, SplittableRandom random) {
+		PatternCache.Pattern pattern = patternCache == null ? null : patternCache.canonicalize(group);
+		if (pattern != null) {
+			ComponentSolution cached = patternCache.get(pattern);
+			if (cached != null)
+				return cached;
+		}
+
+		ComponentSearch search = pattern == null ? new ComponentSearch(group) : new ComponentSearch(group, pattern.getPoints());
+		ComponentSolution solution = search.count(maxSearchNodes);
+		if (solution == null) {
+			long maxNodesPerSample = Math.max(maxSearchNodes / samplesPerComponent, 4L * search.getPoints().length);
+			solution = search.sample(samplesPerComponent, maxNodesPerSample, random);
+		} else if (pattern != null) {
+			patternCache.put(pattern, solution);
+		}
+
+		if (metrics != null) {
+			metrics.componentSizes.record(solution.getPoints().length);
+			metrics.configurations.add(solution.getSampleCount());
+			if (!solution.isExact())
+				metrics.sampledComponents.increment();
+		}
+		return solution;
+	}
+
+	/**
+	 * finds all variations of mine configurations that satisfy the given group of constraints
+	 * @param constraints
+	 * @return
+	 */
+	private List<Map<Point, Boolean>> findSatisfyingConfigurations(List<Constraint> constraints) {
+		List<Map<Point, Boolean>> satisfyingConfigurations = new ArrayList<>();
+		new ComponentSearch(constraints).search(configuration -> satisfyingConfigurations.add(new HashMap<>(configuration)));
+
+		return satisfyingConfigurations;
+	}
+
+	/**
+	 * the count of a component, along with the constraints it was counted from
+	 */
+	private static class CachedComponent {
+		private final List<Constraint> constraints;
+		private final ComponentSolution solution;
+
+		CachedComponent(List<Constraint> constraints, ComponentSolution solution) {
+			this.constraints = constraints;
+			this.solution = solution;
+		}
+	}
+}
@@ -0,0 +1,502 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Finds the reveal which gives the best chance of winning a nearly finished game, by searching every sequence of
+ * reveals to the end.
+ *
+ * A position is a handful of unknown tiles, numbered from 0, together with the numbers already revealed around them.
+ * Every arrangement of the remaining mines among the unknown tiles which agrees with those numbers is listed up front,
+ * and all of them are equally likely.  Revealing a tile splits the arrangements in which it is safe by what the reveal
+ * shows: the tile's number and, if that is 0, the numbers of every tile the cascade opens.  The chance of winning after
+ * a reveal is the average over those outcomes of the chance of winning from there, and the chance of winning a position
+ * is that of its best reveal, or 1 once every unknown tile left is a mine in every remaining arrangement.
+ *
+ * The arrangements still possible follow from which tiles have been revealed and what they showed, so positions are
+ * memoized in a transposition table keyed by the revealed tiles as a bit mask and their numbers packed 4 bits apiece,
+ * which merges the many orders of reaching the same position.  A tile which is safe in every remaining arrangement is
+ * always revealed first, since seeing its number can only help.
+ *
+ * The search allocates nothing per node: the table is open addressed over primitive keys, and the groups a reveal
+ * splits its arrangements into are laid out one after another in an array kept for each depth.  Both are kept from one
+ * search to the next, so one instance should be reused for every search of a game.
+ */
+public class EndgameSearch {
+	/**
+	 * the largest number of unknown tiles a position may have
+	 */
+	public static final int MAX_TILES = 32;
+
+	/**
+	 * the largest transposition table kept between searches, in slots
+	 */
+	private static final int MAX_RETAINED_SLOTS = 1 << 16;
+	private static final int INITIAL_SLOTS = 1 << 10;
+
+	private static final BudgetExhausted BUDGET_EXHAUSTED = new BudgetExhausted();
+
+	private int tiles;
+	private long[] neighborMasks;
+	private int[] flaggedNeighbors;
+	private long[] constraintMasks;
+	private int[] constraintSums;
+	private int mines;
+
+	/**
+	 * the scratch space of each depth of the search.  The arrangements of depth 0 are those of the position, and a reveal
+	 * at depth d writes the groups it splits its arrangements into to depth d + 1
+	 */
+	private final Level[] levels = new Level[MAX_TILES + 2];
+	private int arrangementCount;
+	private int[] sums = new int[0];
+
+	/**
+	 * the transposition table, by revealed tiles, the numbers of tiles 0 to 15 and those of tiles 16 to 31.  A slot is
+	 * empty while its revealed tiles are 0, which no memoized position has since each follows a reveal
+	 */
+	private long[] tableRevealed = new long[INITIAL_SLOTS];
+	private long[] tableLow = new long[INITIAL_SLOTS];
+	private long[] tableHigh = new long[INITIAL_SLOTS];
+	private double[] tableValues = new double[INITIAL_SLOTS];
+	private int tableSize;
+
+	/**
+	 * the outcome of the last call to {@link #open(long, long, int)}
+	 */
+	private long openedTiles;
+	private long openedLow;
+	private long openedHigh;
+
+	private long nodes;
+	private long maxNodes;
+	private int bestTile = -1;
+	private double winProbability;
+
+	/**
+	 * sets the position to search
+	 * @param neighborMasks for each unknown tile, a bit set for each of its unknown neighbors
+	 * @param flaggedNeighbors for each unknown tile, the number of its neighbors known to be mines
+	 * @param constraintMasks for each revealed number touching an unknown tile, a bit set for each unknown tile it touches
+	 * @param constraintSums for each revealed number, the number of mines among its unknown neighbors
+	 * @param mines the number of mines among the unknown tiles
+	 */
+	public void setPosition(long[] neighborMasks, int[] flaggedNeighbors, long[] constraintMasks, int[] constraintSums, int mines) {
+		if (neighborMasks.length > MAX_TILES || flaggedNeighbors.length != neighborMasks.length
+				|| constraintSums.length != constraintMasks.length || mines < 0 || mines > neighborMasks.length)
+			throw new IllegalArgumentException();
+
+		this.tiles = neighborMasks.length;
+		this.neighborMasks = neighborMasks;
+		this.flaggedNeighbors = flaggedNeighbors;
+		this.constraintMasks = constraintMasks;
+		this.constraintSums = constraintSums;
+		this.mines = mines;
+		if (sums.length < constraintMasks.length)
+			sums = new int[constraintMasks.length];
+		arrangementCount = 0;
+		bestTile = -1;
+	}
+
+	/**
+	 * searches the position for the best reveal, giving up once it has done about maxNodes units of work: a unit is a
+	 * step of listing arrangements, a position, or an arrangement split by a reveal
+	 * @param maxNodes
+	 * @return false if the budget ran out or no arrangement fits the position, in which case there is no result
+	 * @throws IllegalStateException if no position has been set
+	 */
+	public boolean search(long maxNodes) {
+		if (neighborMasks == null)
+			throw new IllegalStateException("no position");
+
+		this.maxNodes = maxNodes;
+		nodes = 0;
+		bestTile = -1;
+		try {
+			arrangementCount = 0;
+			Arrays.fill(sums, 0, constraintMasks.length, 0);
+			enumerate(0, 0, mines);
+			if (arrangementCount == 0)
+				return false;
+
+			winProbability = -1;
+			long candidates = getCandidates(levels[0].arrangements, 0, arrangementCount, 0);
+			for (long bits = candidates; bits != 0; bits &= bits - 1) {
+				int tile = Long.numberOfTrailingZeros(bits);
+				double p = reveal(0, 0, arrangementCount, 0, 0, 0, tile);
+				// between equally good reveals, the safer one at least survives longer
+				if (bestTile < 0 || p > winProbability || (p == winProbability && getMineProbability(tile) < getMineProbability(bestTile))) {
+					winProbability = p;
+					bestTile = tile;
+				}
+			}
+			if (bestTile < 0)
+				winProbability = 1;
+
+			return true;
+		} catch (BudgetExhausted e) {
+			bestTile = -1;
+			return false;
+		} finally {
+			clearTable();
+		}
+	}
+
+	/**
+	 * returns the unknown tile to reveal, or -1 if every unknown tile is a mine
+	 * @return
+	 */
+	public int getBestTile() {
+		return bestTile;
+	}
+
+	/**
+	 * returns the chance of winning by playing perfectly from here on
+	 * @return
+	 */
+	public double getWinProbability() {
+		return winProbability;
+	}
+
+	/**
+	 * returns the number of arrangements of the mines which fit the position
+	 * @return
+	 */
+	public int getArrangementCount() {
+		return arrangementCount;
+	}
+
+	/**
+	 * returns the fraction of arrangements placing a mine on an unknown tile
+	 * @param tile
+	 * @return
+	 */
+	public double getMineProbability(int tile) {
+		int count = 0;
+		for (int a = 0; a < arrangementCount; a++)
+			count += (int) (levels[0].arrangements[a] >>> tile & 1);
+
+		return (double) count / arrangementCount;
+	}
+
+	/**
+	 * lists every arrangement of minesLeft mines among tiles from tile onwards which, added to mask, satisfies every
+	 * revealed number, given that sums holds the mines each revealed number has been given so far
+	 */
+	private void enumerate(int tile, long mask, int minesLeft) {
+		spend(1);
+		if (minesLeft > tiles - tile)
+			return;
+		if (tile == tiles) {
+			for (int c = 0; c < constraintMasks.length; c++)
+				if (sums[c] != constraintSums[c])
+					return;
+
+			Level root = getLevel(0);
+			root.ensureArrangements(arrangementCount + 1);
+			root.arrangements[arrangementCount++] = mask;
+			return;
+		}
+
+		// the tile is safe: every number touching it must still be reachable without it
+		long bit = 1L << tile, later = -1L << (tile + 1);
+		boolean isPossible = true;
+		for (int c = 0; c < constraintMasks.length && isPossible; c++)
+			if ((constraintMasks[c] & bit) != 0)
+				isPossible = sums[c] + Long.bitCount(constraintMasks[c] & later) >= constraintSums[c];
+		if (isPossible)
+			enumerate(tile + 1, mask, minesLeft);
+
+		if (minesLeft == 0)
+			return;
+
+		isPossible = true;
+		for (int c = 0; c < constraintMasks.length && isPossible; c++)
+			if ((constraintMasks[c] & bit) != 0)
+				isPossible = sums[c] < constraintSums[c];
+		if (!isPossible)
+			return;
+
+		for (int c = 0; c < constraintMasks.length; c++)
+			if ((constraintMasks[c] & bit) != 0)
+				sums[c]++;
+		enumerate(tile + 1, mask | bit, minesLeft - 1);
+		for (int c = 0; c < constraintMasks.length; c++)
+			if ((constraintMasks[c] & bit) != 0)
+				sums[c]--;
+	}
+
+	/**
+	 * returns the chance of winning a position, whose arrangements still possible are those from to to of its depth
+	 * @param depth
+	 * @param from
+	 * @param to
+	 * @param revealed the unknown tiles revealed so far
+	 * @param low the numbers shown by revealed tiles 0 to 15
+	 * @param high the numbers shown by revealed tiles 16 to 31
+	 * @return
+	 */
+	private double search(int depth, int from, int to, long revealed, long low, long high) {
+		int slot = findSlot(revealed, low, high);
+		if (tableRevealed[slot] != 0)
+			return tableValues[slot];
+
+		spend(1);
+		long candidates = getCandidates(levels[depth].arrangements, from, to, revealed);
+		double best = candidates == 0 ? 1 : 0;
+		for (long bits = candidates; bits != 0 && best < 1; bits &= bits - 1)
+			best = Math.max(best, reveal(depth, from, to, revealed, low, high, Long.numberOfTrailingZeros(bits)));
+
+		memoize(revealed, low, high, best);
+		return best;
+	}
+
+	/**
+	 * returns the tiles worth revealing: one tile safe in every arrangement if there is any, and otherwise every tile
+	 * not yet revealed which is safe in at least one
+	 */
+	private long getCandidates(long[] arrangements, int from, int to, long revealed) {
+		long anyMine = 0, allMines = -1L;
+		for (int a = from; a < to; a++) {
+			anyMine |= arrangements[a];
+			allMines &= arrangements[a];
+		}
+
+		long unrevealed = ~revealed & (1L << tiles) - 1;
+		long safe = unrevealed & ~anyMine;
+		if (safe != 0)
+			return Long.lowestOneBit(safe);
+
+		return unrevealed & ~allMines;
+	}
+
+	/**
+	 * returns the chance of winning after revealing a tile of a position at a depth
+	 */
+	private double reveal(int depth, int from, int to, long revealed, long low, long high, int tile) {
+		spend(to - from);
+		Level level = getLevel(depth);
+		long[] arrangements = level.arrangements;
+		level.ensureGroups(to - from);
+
+		// every arrangement where the tile is safe gives an outcome: the tiles the reveal opens and their numbers
+		int groups = 0, safe = 0;
+		for (int a = from; a < to; a++) {
+			if ((arrangements[a] >>> tile & 1) != 0) {
+				level.groupOf[a - from] = -1;
+				continue;
+			}
+
+			open(arrangements[a], revealed, tile);
+			int group = level.findGroup(openedTiles, openedLow, openedHigh, groups);
+			if (group == groups)
+				groups++;
+			level.groupOf[a - from] = group;
+			level.groupEnds[group]++;
+			safe++;
+		}
+		// nothing above spends, so the budget never runs out with slots left filled
+		level.clearSlots(groups);
+		if (safe == 0)
+			return 0;
+
+		// lay the groups out one after another at the next depth, leaving each group's end in groupEnds
+		Level next = getLevel(depth + 1);
+		next.ensureArrangements(safe);
+		for (int g = 0, start = 0; g < groups; g++) {
+			int size = level.groupEnds[g];
+			level.groupEnds[g] = start;
+			start += size;
+		}
+		for (int a = from; a < to; a++)
+			if (level.groupOf[a - from] >= 0)
+				next.arrangements[level.groupEnds[level.groupOf[a - from]]++] = arrangements[a];
+
+		double wins = 0;
+		for (int g = 0, start = 0; g < groups; g++) {
+			int end = level.groupEnds[g];
+			wins += (end - start) * search(depth + 1, start, end,
+					revealed | level.groupTiles[g], low | level.groupLow[g], high | level.groupHigh[g]);
+			start = end;
+		}
+
+		return wins / (to - from);
+	}
+
+	/**
+	 * finds the tiles a reveal opens in an arrangement where it is safe, with their numbers, cascading through tiles with
+	 * no adjacent mines as the board does, and leaves them in openedTiles, openedLow and openedHigh
+	 */
+	private void open(long arrangement, long revealed, int tile) {
+		long opened = 1L << tile, pending = opened, low = 0, high = 0;
+		while (pending != 0) {
+			int t = Long.numberOfTrailingZeros(pending);
+			pending &= pending - 1;
+
+			long number = Long.bitCount(arrangement & neighborMasks[t]) + flaggedNeighbors[t];
+			if (t < 16)
+				low |= number << (t << 2);
+			else high |= number << ((t - 16) << 2);
+
+			if (number == 0) {
+				long next = neighborMasks[t] & ~revealed & ~opened;
+				opened |= next;
+				pending |= next;
+			}
+		}
+
+		openedTiles = opened;
+		openedLow = low;
+		openedHigh = high;
+	}
+
+	/**
+	 * returns the slot of the transposition table holding a position, or the empty slot it would go in
+	 */
+	private int findSlot(long revealed, long low, long high) {
+		int mask = tableRevealed.length - 1;
+		for (int slot = hash(revealed, low, high) & mask; ; slot = (slot + 1) & mask)
+			if (tableRevealed[slot] == 0
+					|| (tableRevealed[slot] == revealed && tableLow[slot] == low && tableHigh[slot] == high))
+				return slot;
+	}
+
+	private void memoize(long revealed, long low, long high, double value) {
+		if ((tableSize + 1) * 2 > tableRevealed.length)
+			resizeTable(tableRevealed.length * 2);
+
+		int slot = findSlot(revealed, low, high);
+		if (tableRevealed[slot] == 0)
+			tableSize++;
+		tableRevealed[slot] = revealed;
+		tableLow[slot] = low;
+		tableHigh[slot] = high;
+		tableValues[slot] = value;
+	}
+
+	private void resizeTable(int slots) {
+		long[] revealed = tableRevealed, low = tableLow, high = tableHigh;
+		double[] values = tableValues;
+		tableRevealed = new long[slots];
+		tableLow = new long[slots];
+		tableHigh = new long[slots];
+		tableValues = new double[slots];
+		for (int s = 0; s < revealed.length; s++)
+			if (revealed[s] != 0) {
+				int slot = findSlot(revealed[s], low[s], high[s]);
+				tableRevealed[slot] = revealed[s];
+				tableLow[slot] = low[s];
+				tableHigh[slot] = high[s];
+				tableValues[slot] = values[s];
+			}
+	}
+
+	/**
+	 * empties the transposition table, shrinking it if a large search grew it past what is worth keeping
+	 */
+	private void clearTable() {
+		if (tableRevealed.length > MAX_RETAINED_SLOTS) {
+			tableRevealed = new long[INITIAL_SLOTS];
+			tableLow = new long[INITIAL_SLOTS];
+			tableHigh = new long[INITIAL_SLOTS];
+			tableValues = new double[INITIAL_SLOTS];
+		} else if (tableSize > 0) {
+			Arrays.fill(tableRevealed, 0);
+		}
+		tableSize = 0;
+	}
+
+	private static int hash(long revealed, long low, long high) {
+		long h = (revealed * 31 + low) * 31 + high;
+		h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+		return (int) (h ^ h >>> 33);
+	}
+
+	private Level getLevel(int depth) {
+		Level level = levels[depth];
+		return level != null ? level : (levels[depth] = new Level());
+	}
+
+	private void spend(int work) {
+		nodes += work;
+		if (nodes > maxNodes)
+			throw BUDGET_EXHAUSTED;
+	}
+
+	/**
+	 * the arrangements of one depth of the search, and the scratch space a reveal there uses to group its arrangements by
+	 * outcome through a small open addressed table
+	 */
+	private static class Level {
+		private long[] arrangements = new long[16];
+		/**
+		 * the group of each arrangement being split, or -1 if the revealed tile is a mine in it
+		 */
+		private int[] groupOf = new int[0];
+		private long[] groupTiles = new long[0];
+		private long[] groupLow = new long[0];
+		private long[] groupHigh = new long[0];
+		/**
+		 * the size of each group, and then where it ends at the next depth
+		 */
+		private int[] groupEnds = new int[0];
+		private int[] groupSlots = new int[0];
+		/**
+		 * one more than the group of each outcome, or 0 for an empty slot
+		 */
+		private int[] slots = new int[0];
+
+		void ensureArrangements(int count) {
+			if (arrangements.length < count)
+				arrangements = Arrays.copyOf(arrangements, Math.max(count, arrangements.length * 2));
+		}
+
+		void ensureGroups(int count) {
+			if (groupOf.length >= count)
+				return;
+
+			int capacity = Math.max(count, groupOf.length * 2);
+			groupOf = new int[capacity];
+			groupTiles = new long[capacity];
+			groupLow = new long[capacity];
+			groupHigh = new long[capacity];
+			groupEnds = new int[capacity];
+			groupSlots = new int[capacity];
+			slots = new int[Integer.highestOneBit(capacity) * 4];
+		}
+
+		/**
+		 * returns the group of an outcome, which is groups if it is new
+		 */
+		int findGroup(long tiles, long low, long high, int groups) {
+			int mask = slots.length - 1;
+			for (int slot = hash(tiles, low, high) & mask; ; slot = (slot + 1) & mask) {
+				int group = slots[slot] - 1;
+				if (group < 0) {
+					slots[slot] = groups + 1;
+					groupSlots[groups] = slot;
+					groupTiles[groups] = tiles;
+					groupLow[groups] = low;
+					groupHigh[groups] = high;
+					groupEnds[groups] = 0;
+					return groups;
+				}
+				if (groupTiles[group] == tiles && groupLow[group] == low && groupHigh[group] == high)
+					return group;
+			}
+		}
+
+		void clearSlots(int groups) {
+			for (int g = 0; g < groups; g++)
+				slots[groupSlots[g]] = 0;
+		}
+	}
+
+	private static class BudgetExhausted extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		BudgetExhausted() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package minesweeper;
+
+/**
+ * the dimensions and mine count of a board, written as WIDTHxHEIGHTxMINES (e.g. 30x16x99)
+ */
+public final class GameSpec {
+	public static final GameSpec BEGINNER = new GameSpec(9, 9, 10);
+	public static final GameSpec INTERMEDIATE = new GameSpec(16, 16, 40);
+	public static final GameSpec EXPERT = new GameSpec(30, 16, 99);
+
+	private final int width;
+	private final int height;
+	private final int mines;
+
+	public GameSpec(int width, int height, int mines) {
+		if (width < 1 || height < 1 || mines < 0 || mines > width * height)
+			throw new IllegalArgumentException();
+
+		this.width = width;
+		this.height = height;
+		this.mines = mines;
+	}
+
+	/**
+	 * parses either WIDTHxHEIGHTxMINES or the name of a preset difficulty
+	 * @param spec
+	 * @return
+	 */
+	public static GameSpec parse(String spec) {
+		switch (spec.toLowerCase()) {
+			case "beginner":
+				return BEGINNER;
+			case "intermediate":
+				return INTERMEDIATE;
+			case "expert":
+				return EXPERT;
+		}
+
+		String[] parts = spec.split("x");
+		if (parts.length != 3)
+			throw new IllegalArgumentException(spec);
+
+		return new GameSpec(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getMines() {
+		return mines;
+	}
+
+	/**
+	 * returns board number index of a run seeded with seed
+	 * @param seed
+	 * @param index
+	 * @return
+	 */
+	public MinesweeperBoard buildBoard(long seed, long index) {
+		return MinesweeperBoard.forIndex(width, height, mines, seed, index);
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof GameSpec))
+			return false;
+
+		GameSpec spec = (GameSpec) o;
+		return width == spec.width && height == spec.height && mines == spec.mines;
+	}
+
+	public int hashCode() {
+		return (31 * width + height) * 31 + mines;
+	}
+
+	public String toString() {
+		return width + "x" + height + "x" + mines;
+	}
+}
@@ -0,0 +1,129 @@
+package minesweeper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, safe to record into from any number of threads.  Values below 16 are
+ * counted exactly; larger values fall into one of 8 buckets per power of two, so every percentile is within 12.5% of
+ * the true value
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * records one value, clamping negative values to 0
+	 * @param value
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts.incrementAndGet(getBucket(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * copies the current counts.  Values recorded while the copy is made may or may not be included
+	 * @return
+	 */
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		long count = 0;
+		for (int b = 0; b < BUCKETS; b++)
+			count += copy[b] = counts.get(b);
+
+		return new Snapshot(copy, count, sum.sum(), max.get());
+	}
+
+	public void reset() {
+		for (int b = 0; b < BUCKETS; b++)
+			counts.set(b, 0);
+		sum.reset();
+		max.reset();
+	}
+
+	private static int getBucket(long value) {
+		if (value < 2 * SUB_BUCKETS)
+			return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + (int) (value >>> (exponent - SUB_BUCKET_BITS));
+	}
+
+	/**
+	 * returns the largest value which falls into a bucket
+	 * @param bucket
+	 * @return
+	 */
+	private static long getUpperBound(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS)
+			return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long lower = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * the counts of a histogram at one point in time
+	 */
+	public static class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : sum / (double) count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * returns an upper bound on the value below which the given fraction of values fall
+		 * @param fraction between 0 and 1
+		 * @return
+		 */
+		public long getPercentile(double fraction) {
+			long rank = (long) Math.ceil(fraction * count);
+			long seen = 0;
+			for (int b = 0; b < counts.length; b++)
+				if ((seen += counts[b]) >= rank && seen > 0)
+					return Math.min(max, getUpperBound(b));
+
+			return max;
+		}
+
+		public long getMedian() {
+			return getPercentile(0.5);
+		}
+
+		public long get99thPercentile() {
+			return getPercentile(0.99);
+		}
+
+		public String toString() {
+			return String.format("n=%d mean=%.1f p50=%d p99=%d max=%d", count, getMean(), getMedian(), get99thPercentile(), max);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.*;
+
+/**
+ * Deduces forced tiles from a set of constraints by linear elimination over a bit-packed matrix.  Every constraint is a
+ * row of 0/1 coefficients stored as a long[] mask over the frontier tiles.  Subtracting one row from another yields a
+ * row whose coefficients are in {-1, 0, 1}, kept as a pair of masks (positive and negative tiles).  Such a row is
+ * resolved by bound reasoning: if its sum equals the number of positive tiles, all positive tiles are mines and all
+ * negative tiles are empty, and symmetrically if its sum equals minus the number of negative tiles.  Differences of
+ * nested rows are themselves 0/1 rows and are added back to the matrix until no new rows appear.
+ */
+public class LinearDeduction {
+	private static final int MAX_ROW_GROWTH = 4;
+
+	private final Point[] points;
+	private final int words;
+	private final List<Row> rows = new ArrayList<>();
+	private final Set<Row> seen = new HashSet<>();
+
+	/**
+	 * the masks of the difference being examined, copied into a row only if it is kept
+	 */
+	private final long[] positive;
+	private final long[] negative;
+
+	public LinearDeduction(Collection<Constraint> constraints) {
+		Map<Point, Integer> indices = new LinkedHashMap<>();
+		for (Constraint c : constraints)
+			for (Point p : c.getPoints())
+				indices.putIfAbsent(p, indices.size());
+
+		points = indices.keySet().toArray(new Point[indices.size()]);
+		words = (points.length + 63) >>> 6;
+		positive = new long[words];
+		negative = new long[words];
+
+		for (Constraint c : constraints) {
+			long[] mask = new long[words];
+			for (Point p : c.getPoints()) {
+				int i = indices.get(p);
+				mask[i >>> 6] |= 1L << i;
+			}
+			addRow(new Row(mask, new long[words], c.getSum()));
+		}
+	}
+
+	/**
+	 * returns every tile whose state is forced by the constraints, mapped to true for mines and false for empty tiles.
+	 * Stops at the first round of elimination which forces any tile
+	 * @return
+	 */
+	public Map<Point, Boolean> findForcedTiles() {
+		Map<Point, Boolean> forced = new HashMap<>();
+		for (Row row : rows)
+			resolve(row, forced);
+
+		int maxRows = rows.size() * MAX_ROW_GROWTH;
+		int from = 0;
+		while (forced.isEmpty() && from < rows.size()) {
+			int to = rows.size();
+			for (int i = 0; i < to; i++)
+				for (int j = Math.max(i + 1, from); j < to; j++) {
+					Row a = rows.get(i), b = rows.get(j);
+					if (!a.intersects(b))
+						continue;
+
+					eliminate(a, b, forced, maxRows);
+					eliminate(b, a, forced, maxRows);
+				}
+
+			from = to;
+		}
+
+		return forced;
+	}
+
+	/**
+	 * subtracts row b from row a, resolving the difference by bound reasoning and keeping it as a new row if it is
+	 * still a 0/1 row
+	 */
+	private void eliminate(Row a, Row b, Map<Point, Boolean> forced, int maxRows) {
+		boolean isNested = true, isEqual = true;
+		for (int w = 0; w < words; w++) {
+			positive[w] = a.positive[w] & ~b.positive[w];
+			negative[w] = b.positive[w] & ~a.positive[w];
+			isNested &= negative[w] == 0;
+			isEqual &= positive[w] == 0 && negative[w] == 0;
+		}
+		if (isEqual)
+			return;
+
+		resolve(positive, negative, a.sum - b.sum, forced);
+		if (isNested && rows.size() < maxRows)
+			addRow(new Row(positive.clone(), negative.clone(), a.sum - b.sum));
+	}
+
+	private void addRow(Row row) {
+		if (seen.add(row))
+			rows.add(row);
+	}
+
+	private void resolve(Row row, Map<Point, Boolean> forced) {
+		resolve(row.positive, row.negative, row.sum, forced);
+	}
+
+	private void resolve(long[] positive, long[] negative, int sum, Map<Point, Boolean> forced) {
+		if (sum == bitCount(positive)) {
+			force(positive, true, forced);
+			force(negative, false, forced);
+		} else if (sum == -bitCount(negative)) {
+			force(positive, false, forced);
+			force(negative, true, forced);
+		}
+	}
+
+	private void force(long[] mask, boolean isMine, Map<Point, Boolean> forced) {
+		for (int w = 0; w < words; w++)
+			for (long bits = mask[w]; bits != 0; bits &= bits - 1)
+				forced.put(points[(w << 6) + Long.numberOfTrailingZeros(bits)], isMine);
+	}
+
+	private static int bitCount(long[] mask) {
+		int count = 0;
+		for (long w : mask)
+			count += Long.bitCount(w);
+
+		return count;
+	}
+
+	/**
+	 * the linear equation sum(positive) - sum(negative) = sum
+	 */
+	private static class Row {
+		private final long[] positive;
+		private final long[] negative;
+		private final int sum;
+
+		Row(long[] positive, long[] negative, int sum) {
+			this.positive = positive;
+			this.negative = negative;
+			this.sum = sum;
+		}
+
+		boolean intersects(Row row) {
+			for (int w = 0; w < positive.length; w++)
+				if ((positive[w] & row.positive[w]) != 0)
+					return true;
+
+			return false;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Row))
+				return false;
+
+			Row row = (Row) o;
+			return sum == row.sum && Arrays.equals(positive, row.positive) && Arrays.equals(negative, row.negative);
+		}
+
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(positive) + Arrays.hashCode(negative)) + sum;
+		}
+	}
+}
@@ -1,3 +1,5 @@
+package minesweeper;
+
 public class Main {
 	public static void main(String[] args) {
 		MinesweeperBoard board;
@@ -6,11 +8,12 @@ public class Main {
 		// ...or create a specific board.
 //		board = new MinesweeperBoard(new int[][]{{0, 0, 1, 0, 0},{0, 1, 0, 0, 0},{1, 0, 0, 0, 1}});
 		MinesweeperBoard b = new MinesweeperBoard(16, 30, 99);
+		MinesweeperSolver s = new MinesweeperSolver(b);
 		int attempts = 0;
 		Boolean isWin = null;
 		while(isWin == null || !isWin) {
 			b.reset();
-			MinesweeperSolver s = new MinesweeperSolver(b);
+			s.reset(b);
 			s.solve();
 			isWin = s.isWin();
 			attempts++;
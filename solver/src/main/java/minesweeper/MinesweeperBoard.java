@@ -0,0 +1,500 @@
+package minesweeper;
+
+import java.nio.LongBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+public class MinesweeperBoard implements Board {
+	/**
+	 * Constant representing a revealed mine on the board.
+	 */
+	public static final int MINE = -1;
+	/**
+	 * Constant representing a hidden tile.
+	 */
+	public static final int HIDDEN = -2;
+
+	private final Topology topology;
+	private final int width;
+	private final int height;
+	/**
+	 * the state of every tile by flat index: -10 for a hidden mine, 10 for a revealed one, and otherwise one more than
+	 * the number of adjacent mines, negated while the tile is hidden
+	 */
+	private final int[] state;
+	private int mines;
+	private boolean revealedMine;
+	private int[] cascadeQueue;
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object with specific
+	 * dimensions and number of mines.  The locations of the mines are chosen
+	 * randomly.  All tiles are initially hidden.
+	 *
+	 * @param width The desired width of the board.
+	 * @param height The desired height of the board.
+	 * @param mines The desired number of mines on the board.
+	 * @throws IllegalArgumentException If the desired width or height of the
+	 * board is non-positive, if the desired number of mines is negative, or if
+	 * the desired number of mines is larger than desired number of tiles on
+	 * the board.
+	 */
+	public MinesweeperBoard(int width, int height, int mines) {
+		this(width, height, mines, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object with specific
+	 * dimensions and number of mines.  The locations of the mines are chosen
+	 * by a generator seeded with <code>seed</code>, so equal seeds produce
+	 * equal boards.  All tiles are initially hidden.
+	 *
+	 * @param width The desired width of the board.
+	 * @param height The desired height of the board.
+	 * @param mines The desired number of mines on the board.
+	 * @param seed The seed of the generator choosing mine locations.
+	 * @throws IllegalArgumentException If the desired width or height of the
+	 * board is non-positive, if the desired number of mines is negative, or if
+	 * the desired number of mines is larger than desired number of tiles on
+	 * the board.
+	 */
+	public MinesweeperBoard(int width, int height, int mines, long seed) {
+		this(width, height, mines, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object with specific
+	 * dimensions and number of mines.  The locations of the mines are chosen
+	 * by the given generator, which is not shared with any other board.  All
+	 * tiles are initially hidden.
+	 *
+	 * @param width The desired width of the board.
+	 * @param height The desired height of the board.
+	 * @param mines The desired number of mines on the board.
+	 * @param random The generator choosing mine locations.
+	 * @throws IllegalArgumentException If the desired width or height of the
+	 * board is non-positive, if the desired number of mines is negative, or if
+	 * the desired number of mines is larger than desired number of tiles on
+	 * the board.
+	 */
+	public MinesweeperBoard(int width, int height, int mines, RandomGenerator random) {
+		this(Topology.grid(width, height), mines, random);
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object whose tiles
+	 * touch as described by a topology, such as a torus or a hex grid.  The
+	 * locations of the mines are chosen by the given generator, which is not
+	 * shared with any other board.  All tiles are initially hidden.
+	 *
+	 * @param topology The shape and size of the board.
+	 * @param mines The desired number of mines on the board.
+	 * @param random The generator choosing mine locations.
+	 * @throws IllegalArgumentException If the desired number of mines is
+	 * negative or larger than the number of tiles on the board.
+	 */
+	public MinesweeperBoard(Topology topology, int mines, RandomGenerator random) {
+		if (mines < 0 || mines > topology.getTileCount())
+			throw new IllegalArgumentException();
+
+		this.topology = topology;
+		width = topology.getWidth();
+		height = topology.getHeight();
+		state = new int[width * height];
+		this.mines = mines;
+
+		int[] indices = new int[width * height];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = i;
+		for (int i = 0; i < mines; i++) {
+			int rand = random.nextInt(indices.length - i);
+			state[indices[rand]] = -10;
+			indices[rand] = indices[indices.length - i - 1];
+		}
+		calculateAdjacentCounts();
+	}
+
+	/**
+	 * Returns the generator for game number <code>index</code> of a run
+	 * seeded with <code>seed</code>.  Generators for different indices are
+	 * independent, so games can be generated on any thread in any order and
+	 * each remains reproducible from (seed, index).
+	 *
+	 * @param seed The seed of the run.
+	 * @param index The index of the game within the run.
+	 * @return A generator owned by the caller.
+	 */
+	public static SplittableRandom randomFor(long seed, long index) {
+		return new SplittableRandom(mix64(seed + mix64(index + 0x9E3779B97F4A7C15L)));
+	}
+
+	/**
+	 * Returns board number <code>index</code> of a run seeded with
+	 * <code>seed</code>, with mines placed by
+	 * {@link #randomFor(long, long) randomFor(seed, index)}.
+	 *
+	 * @param width The desired width of the board.
+	 * @param height The desired height of the board.
+	 * @param mines The desired number of mines on the board.
+	 * @param seed The seed of the run.
+	 * @param index The index of the board within the run.
+	 * @return A new board.
+	 */
+	public static MinesweeperBoard forIndex(int width, int height, int mines, long seed, long index) {
+		return new MinesweeperBoard(width, height, mines, randomFor(seed, index));
+	}
+
+	/**
+	 * Returns a parallel stream of <code>count</code> boards, where the board
+	 * at position <code>i</code> equals
+	 * {@link #forIndex(int, int, int, long, long) forIndex(width, height, mines, seed, i)}.
+	 * Worker threads share no generator state.
+	 *
+	 * @param width The desired width of the boards.
+	 * @param height The desired height of the boards.
+	 * @param mines The desired number of mines on each board.
+	 * @param seed The seed of the run.
+	 * @param count The number of boards.
+	 * @return An ordered, parallel stream of boards.
+	 */
+	public static Stream<MinesweeperBoard> generate(int width, int height, int mines, long seed, long count) {
+		return LongStream.range(0, count)
+				.parallel()
+				.mapToObj(i -> forIndex(width, height, mines, seed, i));
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object with mines at
+	 * specified locations.  The <code>mines</code> array should be a
+	 * rectangular (non-ragged) array in row-major order.  All non-zero
+	 * elements are interpreted as locations that should contain mines.
+	 * All tiles are initially hidden.
+	 *
+	 * @param mines An array of mine location information.
+	 * @throws IllegalArgumentException If the implied width or height of the
+	 * board is non-positive, or if the <code>mines</code> array is not
+	 * rectangular.
+	 */
+	public MinesweeperBoard(int[][] mines) {
+		if (mines == null || mines.length < 1 || mines[0].length < 1)
+			throw new IllegalArgumentException();
+
+		topology = Topology.grid(mines[0].length, mines.length);
+		width = topology.getWidth();
+		height = topology.getHeight();
+		state = new int[width * height];
+
+		for (int row = 0; row < height; row++) {
+			if (mines[row].length != width)
+				throw new IllegalArgumentException();
+			for (int col = 0; col < width; col++)
+				if (mines[row][col] != 0) {
+					state[row * width + col] = -10;
+					this.mines++;
+				}
+		}
+
+		calculateAdjacentCounts();
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object with mines at
+	 * the locations set in a bit-packed mask, where bit
+	 * <code>row * width + column</code> (bit <code>i % 64</code> of word
+	 * <code>i / 64</code>) marks a mine.  All tiles are initially hidden.
+	 *
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param mineMask The mine locations, at least
+	 * <code>ceil(width * height / 64)</code> words long.
+	 * @throws IllegalArgumentException If the width or height of the board
+	 * is non-positive, or if the mask is too short.
+	 */
+	public MinesweeperBoard(int width, int height, long[] mineMask) {
+		this(width, height, LongBuffer.wrap(mineMask));
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object from a mask
+	 * read in place at the buffer's current position, which is how boards are
+	 * loaded from a mapped {@link BoardCorpus}.  The buffer's position is left
+	 * unchanged.
+	 *
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @param mineMask The mine locations, starting at the current position.
+	 */
+	MinesweeperBoard(int width, int height, LongBuffer mineMask) {
+		if (width < 1 || height < 1 || mineMask.remaining() < getMaskWords(width, height))
+			throw new IllegalArgumentException();
+
+		topology = Topology.grid(width, height);
+		this.width = width;
+		this.height = height;
+		state = new int[width * height];
+		int base = mineMask.position();
+		for (int w = 0, words = getMaskWords(width, height); w < words; w++)
+			for (long bits = mineMask.get(base + w); bits != 0; bits &= bits - 1) {
+				int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+				if (i >= width * height)
+					throw new IllegalArgumentException();
+				state[i] = -10;
+				mines++;
+			}
+
+		calculateAdjacentCounts();
+	}
+
+	/**
+	 * Initializes a new <code>MinesweeperBoard</code> object from a board of
+	 * a {@link BoardBlock}, whose mines and adjacent counts are already
+	 * known, so nothing is counted again.  All tiles are initially hidden.
+	 *
+	 * @param topology The topology of the board.
+	 * @param mineMasks The mine masks of the block.
+	 * @param maskOffset The first word of this board's mask.
+	 * @param counts The adjacent counts of the block.
+	 * @param countsOffset The position of the count of this board's first
+	 * tile.
+	 */
+	MinesweeperBoard(Topology topology, long[] mineMasks, int maskOffset, byte[] counts, int countsOffset) {
+		this.topology = topology;
+		width = topology.getWidth();
+		height = topology.getHeight();
+		state = new int[width * height];
+		for (int i = 0; i < state.length; i++)
+			if ((mineMasks[maskOffset + (i >>> 6)] & 1L << i) != 0) {
+				state[i] = -10;
+				mines++;
+			} else {
+				state[i] = -(1 + counts[countsOffset + i]);
+			}
+	}
+
+	/**
+	 * Returns the mine locations of this board as a bit-packed mask, in the
+	 * layout accepted by {@link #MinesweeperBoard(int, int, long[])}.
+	 *
+	 * @return A new mask of the mine locations.
+	 */
+	public long[] getMineMask() {
+		long[] mask = new long[getMaskWords(width, height)];
+		for (int i = 0; i < state.length; i++)
+			if (state[i] == -10 || state[i] == 10)
+				mask[i >>> 6] |= 1L << i;
+
+		return mask;
+	}
+
+	/**
+	 * Returns the number of words in the mine mask of a board.
+	 *
+	 * @param width The width of the board.
+	 * @param height The height of the board.
+	 * @return The number of longs needed to hold one bit per tile.
+	 */
+	public static int getMaskWords(int width, int height) {
+		return (width * height + 63) >>> 6;
+	}
+
+	/**
+	 * Returns the width of this board.
+	 *
+	 * @return The width of this board.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of this board.
+	 *
+	 * @return The height of this board.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the topology describing which tiles of this board touch.
+	 *
+	 * @return The topology of this board.
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns the number of mines on this board.
+	 *
+	 * @return The number of mines on this board.
+	 */
+	public int getMines() {
+		return mines;
+	}
+
+	public long getMineCount() {
+		return mines;
+	}
+
+	/**
+	 * Indicates whether a mine tile has been revealed, signifying that the
+	 * game for this board is over (a loss).
+	 *
+	 * @return <code>true</code> if a mine tile has been revealed, or
+	 * <code>false</code> otherwise.
+	 */
+	public boolean hasRevealedMine() {
+		return revealedMine;
+	}
+
+	/**
+	 * Returns the visible state of a specified tile.  The visible state of a
+	 * tile is {@link #HIDDEN} if the tile is hidden, {@link #MINE} if the
+	 * tile is a mine, or a number between 0 and 8 (inclusive) indicating the
+	 * number of mine tiles adjacent to the specified tile, as defined by the
+	 * board's {@link Topology}.
+	 *
+	 * @param row The row of the tile to examine.
+	 * @param column The column of the tile to examine.
+	 * @return The visible state of the specified tile, either {@link #HIDDEN},
+	 * {@link #MINE}, or an integer in the range [0, 8].
+	 * @throws IllegalArgumentException If the coordinates of the specified
+	 * tile do not exist on this board.
+	 */
+	public int getTile(int row, int column) {
+		if (row < 0 || column < 0 || row >= getHeight() || column >= getWidth())
+			throw new IllegalArgumentException();
+
+		int tile = state[row * width + column];
+		if (tile < 0)
+			return HIDDEN;
+		if (tile == 10)
+			return MINE;
+		return tile - 1;
+	}
+
+	/**
+	 * Reveals a specified tile.  The visible state of the tile is changed and
+	 * may be examined via {@link #getTile(int,int)}.  Note: once a mine tile
+	 * is revealed, no further tiles may be revealed (unless the board is reset).
+	 *
+	 * @param row The row of the tile to reveal.
+	 * @param column The column of the tile to reveal.
+	 * @throws IllegalStateException If a mine has been revealed previously on
+	 * this board or if the specified tile has been revealed previously.
+	 * @throws IllegalArgumentException If the coordinates of the specified
+	 * tile do not exist on this board.
+	 */
+	public void revealTile(int row, int column) {
+		if (row < 0 || column < 0 || row >= height || column >= width)
+			throw new IllegalArgumentException();
+		int i = row * width + column;
+		if (revealedMine || state[i] >= 0)
+			throw new IllegalStateException();
+
+		state[i] = -state[i];
+		revealedMine = state[i] == 10;
+	}
+
+	/**
+	 * Reveals a specified tile and, if it has no adjacent mines, every tile
+	 * reachable from it through tiles with no adjacent mines, as a player's
+	 * click would.  The region is flood-filled in a single pass.
+	 *
+	 * @param row The row of the tile to reveal.
+	 * @param column The column of the tile to reveal.
+	 * @return The tiles revealed by this call, in the order they were
+	 * revealed, as indices of the form <code>row * width + column</code>.
+	 * The first element is always the specified tile.
+	 * @throws IllegalStateException If a mine has been revealed previously on
+	 * this board or if the specified tile has been revealed previously.
+	 * @throws IllegalArgumentException If the coordinates of the specified
+	 * tile do not exist on this board.
+	 */
+	public long[] revealCascade(int row, int column) {
+		revealTile(row, column);
+
+		if (cascadeQueue == null)
+			cascadeQueue = new int[state.length];
+
+		int[] queue = cascadeQueue, offsets = topology.getOffsets(), neighbors = topology.getNeighbors();
+		int head = 0, tail = 0;
+		queue[tail++] = row * width + column;
+		while (head < tail) {
+			int tile = queue[head++];
+			if (state[tile] != 1)
+				continue;
+
+			for (int n = offsets[tile]; n < offsets[tile + 1]; n++) {
+				int neighbor = neighbors[n];
+				if (state[neighbor] < 0) {
+					state[neighbor] = -state[neighbor];
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+
+		long[] revealed = new long[tail];
+		for (int i = 0; i < tail; i++)
+			revealed[i] = queue[i];
+
+		return revealed;
+	}
+
+	/**
+	 * Resets this board to its initial configuration where all tiles are
+	 * hidden.
+	 */
+	public void reset() {
+		for (int i = 0; i < state.length; i++)
+			if (state[i] > 0)
+				state[i] = -state[i];
+		revealedMine = false;
+	}
+
+	/**
+	 * Returns a string representation of this board based on the current set
+	 * of revealed tiles.
+	 *
+	 * @return A string representation of this board.
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int row = 0; row < height; row++) {
+			for (int col = 0; col < width; col++) {
+				int tile = state[row * width + col];
+				if (tile < 0)
+					sb.append(' ');
+				else if (tile == 10)
+					sb.append('*');
+				else
+					sb.append(tile - 1);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private void calculateAdjacentCounts() {
+		int[] offsets = topology.getOffsets(), neighbors = topology.getNeighbors();
+		for (int i = 0; i < state.length; i++) {
+			if (state[i] == -10)
+				continue;
+			int adjacentMines = 0;
+			for (int n = offsets[i]; n < offsets[i + 1]; n++)
+				if (state[neighbors[n]] == -10)
+					adjacentMines++;
+			state[i] = -(1 + adjacentMines);
+		}
+	}
+}
@@ -1,3 +1,5 @@
+package minesweeper;
+
 import java.awt.*;
 import java.util.*;
 
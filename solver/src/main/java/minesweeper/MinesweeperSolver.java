@@ -0,0 +1,541 @@
+package minesweeper;
+
+import java.awt.*;
+import java.util.*;
+
+public class MinesweeperSolver {
+	/**
+	 * boards with more tiles than this do not get a shared point per tile
+	 */
+	private static final long MAX_CACHED_POINTS = 1 << 22;
+
+	private Board board;
+	private ConstraintSet constraints;
+
+	/**
+	 * tiles are identified internally by their flat index, row * width + column
+	 */
+	private final int width;
+	private final long tileCount;
+	private final TileSet knownTiles;
+	private final TileSet flaggedTiles;
+	private final Point[] points;
+	/**
+	 * the neighbor tables of the board, or null if it is a grid too large to tabulate
+	 */
+	private final Topology topology;
+	private final long[] neighborBuffer;
+	private final EndgameSearch endgameSearch = new EndgameSearch();
+
+	private SplittableRandom random;
+	private SolverListener listener;
+	private SolverMetrics metrics;
+	private int endgameTiles = 16;
+	private long endgameBudget = 100_000;
+
+	public MinesweeperSolver(Board board) {
+		this(board, new SplittableRandom());
+	}
+
+	/**
+	 * creates a solver whose random choices are all drawn from random, so that a game is reproducible from the board and
+	 * the generator's seed
+	 * @param board
+	 * @param random
+	 */
+	public MinesweeperSolver(Board board, SplittableRandom random) {
+		this.board = board;
+		this.random = random;
+
+		width = board.getWidth();
+		tileCount = (long) width * board.getHeight();
+		knownTiles = new TileSet();
+		flaggedTiles = new TileSet();
+		points = tileCount <= MAX_CACHED_POINTS ? new Point[(int) tileCount] : null;
+		topology = board.getTopology();
+		neighborBuffer = new long[topology == null ? 8 : topology.getMaxDegree()];
+		constraints = new ConstraintSet(random.split());
+	}
+
+	/**
+	 * starts a new game on another board of the same size and topology, continuing to draw random choices from the
+	 * current generator.  Everything sized to the board is kept, so a solver reused for game after game allocates little
+	 * beyond the constraints of each game
+	 * @param board
+	 * @throws IllegalArgumentException if board differs in size or topology from the current board
+	 */
+	public void reset(Board board) {
+		reset(board, random);
+	}
+
+	/**
+	 * starts a new game on another board of the same size and topology, playing exactly as a new
+	 * <code>MinesweeperSolver(board, random)</code> would.  The listener, metrics, search budget and pattern cache are
+	 * kept
+	 * @param board
+	 * @param random
+	 * @throws IllegalArgumentException if board differs in size or topology from the current board
+	 */
+	public void reset(Board board, SplittableRandom random) {
+		if (board.getWidth() != width || board.getHeight() != this.board.getHeight() || !Objects.equals(board.getTopology(), topology))
+			throw new IllegalArgumentException("board differs in size or topology");
+
+		this.board = board;
+		this.random = random;
+		knownTiles.clear();
+		flaggedTiles.clear();
+		constraints.reset(random.split());
+	}
+
+	/**
+	 * bounds the work done per guess: a frontier component whose exact enumeration needs more than maxSearchNodes
+	 * branches has its probabilities estimated from samplesPerComponent sampled configurations instead
+	 * @param maxSearchNodes
+	 * @param samplesPerComponent
+	 */
+	public void setSearchBudget(long maxSearchNodes, int samplesPerComponent) {
+		constraints.setSearchBudget(maxSearchNodes, samplesPerComponent);
+	}
+
+	/**
+	 * switches to an exact search for the guess most likely to win once at most maxUnknownTiles tiles are neither
+	 * revealed nor flagged, or never if it is 0.  A search which needs more than maxNodes units of work is abandoned in
+	 * favor of the safest guess
+	 * @param maxUnknownTiles at most {@link EndgameSearch#MAX_TILES}
+	 * @param maxNodes
+	 */
+	public void setEndgameSearch(int maxUnknownTiles, long maxNodes) {
+		if (maxUnknownTiles < 0 || maxUnknownTiles > EndgameSearch.MAX_TILES || maxNodes < 1)
+			throw new IllegalArgumentException();
+
+		this.endgameTiles = maxUnknownTiles;
+		this.endgameBudget = maxNodes;
+	}
+
+	/**
+	 * attaches a listener to receive every decision this solver makes, or detaches the current one if listener is null.
+	 * Without a listener, no event data is built at all
+	 * @param listener
+	 */
+	public void setListener(SolverListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * records counters and timings of this solver's work into metrics, which may be shared with other solvers, or stops
+	 * recording if metrics is null
+	 * @param metrics
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+		constraints.setMetrics(metrics);
+	}
+
+	/**
+	 * shares the counts of recurring frontier shapes with other solvers through patternCache, or stops sharing if it is
+	 * null
+	 * @param patternCache
+	 */
+	public void setPatternCache(PatternCache patternCache) {
+		constraints.setPatternCache(patternCache);
+	}
+
+	public void solve() {
+		while (!isGameFinished())
+			doMove();
+	}
+
+	public void doMove() {
+		if (metrics == null) {
+			move();
+			return;
+		}
+
+		long start = System.nanoTime();
+		move();
+		metrics.moveNanos.record(System.nanoTime() - start);
+	}
+
+	private void move() {
+		Constraint solvedConstraint = constraints.findTriviallySatisfiedConstraint();
+		if (solvedConstraint != null) {
+			if (listener != null)
+				listener.constraintSolved(solvedConstraint);
+			// the constraint has left the set, so resolving its tiles leaves its points as they are
+			boolean isMine = solvedConstraint.getSum() != 0;
+			if (metrics != null)
+				metrics.trivialTiles.add(solvedConstraint.getPoints().size());
+			for (Point p : solvedConstraint.getPoints()) {
+				if (board.hasRevealedMine())
+					return;
+				if (isMine)
+					flagTile(p);
+				else revealTile(p, 0, false);
+			}
+			return;
+		}
+
+		Map<Point, Boolean> forcedTiles = constraints.findForcedTiles();
+		if (forcedTiles.isEmpty()) {
+			makeGuess();
+		} else {
+			if (listener != null)
+				listener.tilesDeduced(forcedTiles);
+			if (metrics != null)
+				metrics.deducedTiles.add(forcedTiles.size());
+			resolveTiles(forcedTiles);
+		}
+	}
+
+	/**
+	 * flags every tile mapped to true and reveals every tile mapped to false
+	 * @param tiles
+	 */
+	private void resolveTiles(Map<Point, Boolean> tiles) {
+		for (Map.Entry<Point, Boolean> entry : tiles.entrySet()) {
+			if (board.hasRevealedMine())
+				return;
+			if (entry.getValue())
+				flagTile(entry.getKey());
+			else revealTile(entry.getKey(), 0, false);
+		}
+	}
+
+	private void makeGuess() {
+		long remainingMines = board.getMineCount() - flaggedTiles.size();
+		Map<Point, Double> probabilities = constraints.calculateProbabilities(remainingMines, tileCount - knownTiles.size());
+		double avgMines = probabilities.values().stream().mapToDouble(v -> v).sum();
+		boolean revealedOrFlaggedTile = false;
+		long unexploredNonFrontierTiles = tileCount - knownTiles.size() - probabilities.size();
+		double unexploredMineProbability = unexploredNonFrontierTiles == 0 ? 1.0 : (remainingMines - avgMines) / unexploredNonFrontierTiles;
+
+		if (listener != null)
+			listener.probabilitiesCalculated(probabilities, unexploredMineProbability, constraints.getProbabilityError());
+
+		// sampled probabilities of 0 or 1 are only estimates, so are left to the guess below
+		if (constraints.getProbabilityError() == 0)
+			for (Map.Entry<Point, Double> e : probabilities.entrySet()) {
+				if (board.hasRevealedMine())
+					return;
+				if (e.getValue() <= 0) {
+					revealTile(e.getKey(), 0, false);
+					revealedOrFlaggedTile = true;
+					if (metrics != null)
+						metrics.enumeratedTiles.increment();
+				} else if (e.getValue() >= 1) {
+					flagTile(e.getKey());
+					revealedOrFlaggedTile = true;
+					if (metrics != null)
+						metrics.enumeratedTiles.increment();
+				}
+			}
+
+		if (!revealedOrFlaggedTile) {
+			if (tileCount - knownTiles.size() <= endgameTiles && makeEndgameGuess(probabilities.keySet(), remainingMines))
+				return;
+
+			Map.Entry<Point, Double> safestMove = null;
+			for (Map.Entry<Point, Double> e : probabilities.entrySet())
+				if (safestMove == null || e.getValue() < safestMove.getValue())
+					safestMove = e;
+
+			if (safestMove != null && safestMove.getValue() <= unexploredMineProbability) {
+				if (listener != null)
+					listener.guessMade(safestMove.getKey(), safestMove.getValue(), true);
+				if (metrics != null)
+					metrics.frontierGuesses.increment();
+				revealTile(safestMove.getKey(), safestMove.getValue(), true);
+			} else {
+				long tile = getRandomNonFrontierTile(probabilities.keySet(), unexploredNonFrontierTiles);
+				if (listener != null)
+					listener.guessMade(getPoint(tile), unexploredMineProbability, false);
+				if (metrics != null)
+					metrics.randomGuesses.increment();
+				revealTile(tile, unexploredMineProbability, true);
+			}
+		}
+	}
+
+	/**
+	 * reveals the tile which an exact search of the remaining game finds gives the best chance of winning, rather than
+	 * just the safest one
+	 * @param frontier
+	 * @param remainingMines
+	 * @return false if the search ran out of budget, leaving the guess to the usual rule
+	 */
+	private boolean makeEndgameGuess(Set<Point> frontier, long remainingMines) {
+		long[] unknown = new long[(int) (tileCount - knownTiles.size())];
+		int n = 0;
+		for (long i = knownTiles.nextClearBit(0); i < tileCount; i = knownTiles.nextClearBit(i + 1))
+			unknown[n++] = i;
+
+		// every revealed number touching an unknown tile constrains the unknown tiles it touches
+		long[] neighborMasks = new long[n];
+		int[] flaggedNeighbors = new int[n];
+		Map<Long, Long> numbers = new LinkedHashMap<>();
+		for (int u = 0; u < n; u++)
+			for (int k = 0, count = getNeighbors(unknown[u], neighborBuffer); k < count; k++) {
+				long neighbor = neighborBuffer[k];
+				if (flaggedTiles.get(neighbor))
+					flaggedNeighbors[u]++;
+				else if (!knownTiles.get(neighbor))
+					neighborMasks[u] |= 1L << Arrays.binarySearch(unknown, neighbor);
+				else numbers.merge(neighbor, 1L << u, (a, b) -> a | b);
+			}
+
+		long[] constraintMasks = new long[numbers.size()];
+		int[] constraintSums = new int[numbers.size()];
+		int c = 0;
+		for (Map.Entry<Long, Long> e : numbers.entrySet()) {
+			int sum = getTile(getPoint(e.getKey()));
+			for (int k = 0, count = getNeighbors(e.getKey(), neighborBuffer); k < count; k++)
+				if (flaggedTiles.get(neighborBuffer[k]))
+					sum--;
+			constraintMasks[c] = e.getValue();
+			constraintSums[c++] = sum;
+		}
+
+		endgameSearch.setPosition(neighborMasks, flaggedNeighbors, constraintMasks, constraintSums, (int) remainingMines);
+		if (!endgameSearch.search(endgameBudget) || endgameSearch.getBestTile() < 0)
+			return false;
+
+		long tile = unknown[endgameSearch.getBestTile()];
+		double probability = endgameSearch.getMineProbability(endgameSearch.getBestTile());
+		if (listener != null)
+			listener.guessMade(getPoint(tile), probability, frontier.contains(getPoint(tile)));
+		if (metrics != null)
+			metrics.endgameGuesses.increment();
+		revealTile(tile, probability, true);
+		return true;
+	}
+
+	/**
+	 * Picks uniformly among the unexplored tiles which are not part of any constraint.  Tiles are drawn from the whole
+	 * board until one qualifies, which on large boards almost always succeeds at once; only when most of the board is
+	 * explored are the remaining tiles counted off instead
+	 * @param frontier
+	 * @param count the number of such tiles
+	 * @return
+	 */
+	private long getRandomNonFrontierTile(Set<Point> frontier, long count) {
+		if (count * 4 >= tileCount)
+			for (int attempt = 0; attempt < 64; attempt++) {
+				long i = random.nextLong(tileCount);
+				if (!knownTiles.get(i) && !frontier.contains(getPoint(i)))
+					return i;
+			}
+
+		long skip = random.nextLong(count);
+		for (long i = knownTiles.nextClearBit(0); i < tileCount; i = knownTiles.nextClearBit(i + 1))
+			if (!frontier.contains(getPoint(i)) && skip-- == 0)
+				return i;
+
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * flags a tile as a mine
+	 * @param p
+	 */
+	private void flagTile(Point p) {
+		long i = getIndex(p);
+		if (listener != null)
+			listener.moveMade(p, true, false, 1);
+		knownTiles.set(i);
+		flaggedTiles.set(i);
+		constraints.markKnown(p, true);
+		if (listener != null)
+			listener.tileFlagged(p);
+	}
+
+	private void revealTile(Point p, double probability, boolean isGuess) {
+		revealTile(getIndex(p), probability, isGuess);
+	}
+
+	/**
+	 * reveals a tile, along with any region of tiles with no adjacent mines the board opens up from it.  The whole batch
+	 * is marked known before any of its constraints are built, so each constraint starts out reduced, and tiles with no
+	 * adjacent mines need no constraint at all since all their neighbors are revealed.  Does nothing if the tile was
+	 * already revealed by an earlier batch
+	 * @param i
+	 * @param probability the probability that the tile is a mine, 0 if it is known to be empty
+	 * @param isGuess whether the tile might be a mine, which holds even for a guess whose probability is 0
+	 */
+	private void revealTile(long i, double probability, boolean isGuess) {
+		if (knownTiles.get(i))
+			return;
+
+		Point p = getPoint(i);
+		if (listener != null)
+			listener.moveMade(p, false, isGuess, probability);
+		long[] revealed = board.revealCascade(p.y, p.x);
+		if (board.hasRevealedMine()) {
+			if (listener != null)
+				listener.lost(p);
+			return;
+		}
+
+		for (long tile : revealed) {
+			knownTiles.set(tile);
+			constraints.markKnown(getPoint(tile), false);
+		}
+
+		for (long tile : revealed) {
+			Point revealedPoint = getPoint(tile);
+			int adjacentMines = board.getTile(revealedPoint.y, revealedPoint.x);
+			if (adjacentMines > 0) {
+				Constraint constraint = getNeighborConstraint(tile, adjacentMines);
+				if (!constraints.add(constraint))
+					constraints.recycle(constraint);
+			}
+			if (listener != null)
+				listener.tileRevealed(revealedPoint, adjacentMines);
+		}
+	}
+
+	/**
+	 * builds the constraint a revealed tile places on its neighbors, already reduced by every known tile
+	 * @param i
+	 * @param adjacentMines
+	 * @return
+	 */
+	private Constraint getNeighborConstraint(long i, int adjacentMines) {
+		int count = getNeighbors(i, neighborBuffer);
+		for (int n = 0; n < count; n++)
+			if (flaggedTiles.get(neighborBuffer[n]))
+				adjacentMines--;
+
+		Constraint constraint = constraints.newConstraint(adjacentMines);
+		for (int n = 0; n < count; n++)
+			if (!knownTiles.get(neighborBuffer[n]))
+				constraint.getPoints().add(getPoint(neighborBuffer[n]));
+
+		return constraint;
+	}
+
+	/**
+	 * returns the flagged tiles in (x, y) format, copied out of the flagged tile mask
+	 * @return
+	 */
+	public Set<Point> getFlaggedTiles() {
+		Set<Point> tiles = new HashSet<>();
+		for (long i = flaggedTiles.nextSetBit(0); i >= 0; i = flaggedTiles.nextSetBit(i + 1))
+			tiles.add(new Point(getPoint(i)));
+
+		return tiles;
+	}
+
+	/**
+	 * returns the tiles neither revealed nor flagged in (x, y) format, copied out of the known tile mask.  This visits
+	 * every unexplored tile, so it is not meant for very large boards
+	 * @return
+	 */
+	public Set<Point> getUnexploredTiles() {
+		Set<Point> unexploredTiles = new HashSet<>();
+		for (long i = knownTiles.nextClearBit(0); i < tileCount; i = knownTiles.nextClearBit(i + 1))
+			unexploredTiles.add(new Point(getPoint(i)));
+
+		return unexploredTiles;
+	}
+
+	/**
+	 * returns the point for a flat tile index.  On boards small enough to cache one point per tile, points are created on
+	 * first use and shared with the constraint set, so they must never be mutated
+	 * @param i
+	 * @return
+	 */
+	private Point getPoint(long i) {
+		if (points == null)
+			return new Point((int) (i % width), (int) (i / width));
+
+		Point p = points[(int) i];
+		if (p == null)
+			p = points[(int) i] = new Point((int) (i % width), (int) (i / width));
+
+		return p;
+	}
+
+	private long getIndex(Point p) {
+		return (long) p.y * width + p.x;
+	}
+
+	/**
+	 * return the value exposed on MinesweeperBoard.getTile(row, column) for a point in (x, y) format
+	 * @param p
+	 * @return
+	 */
+	private int getTile(Point p) {
+		return board.getTile(p.y, p.x);
+	}
+
+	/**
+	 * writes the flat indices of all tiles touching the given tile into neighbors, from the board's topology, or as a
+	 * standard grid if it has none
+	 * @param i
+	 * @param neighbors a buffer with room for every neighbor
+	 * @return the number of neighbors written
+	 */
+	private int getNeighbors(long i, long[] neighbors) {
+		int count = 0;
+		if (topology != null) {
+			int[] offsets = topology.getOffsets(), tiles = topology.getNeighbors();
+			for (int n = offsets[(int) i], end = offsets[(int) i + 1]; n < end; n++)
+				neighbors[count++] = tiles[n];
+
+			return count;
+		}
+
+		int row = (int) (i / width), col = (int) (i % width);
+		for (int r = Math.max(0, row - 1); r < Math.min(board.getHeight(), row + 2); r++)
+			for (int c = Math.max(0, col - 1); c < Math.min(width, col + 2); c++)
+				if (r != row || c != col)
+					neighbors[count++] = (long) r * width + c;
+
+		return count;
+	}
+
+	public boolean isGameFinished() {
+		return board.hasRevealedMine() || isWin();
+	}
+
+	/**
+	 * returns true if all non-mine tiles have been revealed, false if a mine was hit and null if a mine was hit on the
+	 * first move
+	 * @return
+	 */
+	public Boolean isWin() {
+		if (knownTiles.size() == 0 && board.hasRevealedMine())
+			return null; //what the hell kinda game lets you lose on the first move?!
+
+		return !board.hasRevealedMine() && tileCount == knownTiles.size();
+	}
+
+	/********* Bunch of debug stuff for debugging stuff *********/
+
+	String printBoard() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < board.getWidth()+2; i++) sb.append("-");
+		sb.append("\n");
+		for (int row = 0; row < board.getHeight(); row++) {
+			sb.append("|");
+			for (int col = 0; col < board.getWidth(); col++) {
+				long i = (long) row * width + col;
+				Point p = getPoint(i);
+				if (knownTiles.get(i)) {
+					sb.append(flaggedTiles.get(i) ? "^" : getTile(p));
+				} else if (getTile(p) == MinesweeperBoard.MINE)
+					sb.append("*");
+				else
+					sb.append(" ");
+			}
+			sb.append("|\n");
+		}
+		for (int i = 0; i < board.getWidth()+2; i++) sb.append("-");
+		return sb.toString();
+	}
+
+	public String toString() {
+		return String.format("-------------------Constraints-------------------\n%s\n-------------------------------------------------\n%s",
+				constraints, printBoard());
+	}
+}
@@ -0,0 +1,267 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of component counts shared between games, so that frontier shapes which recur across many games (a
+ * 1-2-1 wall, a 1-1 in a corner) are enumerated once.
+ *
+ * A component is keyed by its constraint structure alone: tiles are numbered in reading order and every constraint
+ * becomes its sum and the numbers of its tiles, which is independent of where the component lies on the board.  This is
+ * repeated under each of the 8 rotations and reflections of the board and the smallest encoding is the key, so mirrored
+ * and rotated copies of a shape share one entry.  Counts are stored by that numbering and handed back to any matching
+ * component with its own tiles in the same order.
+ *
+ * Safe for use from any number of threads.  Once the cache is full, the least frequently used quarter of the entries is
+ * evicted, and the use counts of the survivors are halved so that old favorites eventually age out.
+ */
+public class PatternCache {
+	private static final int[][] SYMMETRIES = {
+			{1, 0, 0, 1}, {-1, 0, 0, 1}, {1, 0, 0, -1}, {-1, 0, 0, -1},
+			{0, 1, 1, 0}, {0, -1, 1, 0}, {0, 1, -1, 0}, {0, -1, -1, 0}
+	};
+
+	private final int maxEntries;
+	private final int maxTiles;
+	private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicBoolean isEvicting = new AtomicBoolean();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public PatternCache() {
+		this(4096, 32);
+	}
+
+	/**
+	 * @param maxEntries the number of components kept
+	 * @param maxTiles components with more tiles than this are neither looked up nor stored, since they rarely recur; at
+	 * most 64
+	 */
+	public PatternCache(int maxEntries, int maxTiles) {
+		if (maxEntries < 1 || maxTiles < 1 || maxTiles > 64)
+			throw new IllegalArgumentException();
+
+		this.maxEntries = maxEntries;
+		this.maxTiles = maxTiles;
+	}
+
+	/**
+	 * returns the canonical form of a group of constraints, or null if it is too large to be cached
+	 * @param group
+	 * @return
+	 */
+	public Pattern canonicalize(List<Constraint> group) {
+		Map<Point, Integer> indices = new HashMap<>();
+		for (Constraint c : group)
+			for (Point p : c.getPoints())
+				if (indices.putIfAbsent(p, indices.size()) == null && indices.size() > maxTiles)
+					return null;
+
+		Point[] points = new Point[indices.size()];
+		for (Map.Entry<Point, Integer> e : indices.entrySet())
+			points[e.getValue()] = e.getKey();
+
+		int[][] constraints = new int[group.size()][];
+		for (int c = 0; c < constraints.length; c++) {
+			Constraint constraint = group.get(c);
+			int[] tiles = constraints[c] = new int[constraint.getPoints().size()];
+			int i = 0;
+			for (Point p : constraint.getPoints())
+				tiles[i++] = indices.get(p);
+		}
+
+		int[] best = null;
+		long[] bestOrder = null;
+		long[] order = new long[points.length];
+		int[] numbers = new int[points.length];
+		for (int[] symmetry : SYMMETRIES) {
+			// tiles sort by their transformed row, then column, with the tile's index in the low bits.  Coordinates are
+			// taken relative to the tile the component starts from, so they stay small wherever it lies on the board
+			for (int i = 0; i < points.length; i++) {
+				long x = points[i].x - points[0].x, y = points[i].y - points[0].y;
+				long row = symmetry[2] * x + symmetry[3] * y, column = symmetry[0] * x + symmetry[1] * y;
+				order[i] = ((row << 24) + column) << 6 | i;
+			}
+			Arrays.sort(order);
+			for (int n = 0; n < order.length; n++)
+				numbers[(int) (order[n] & 63)] = n;
+
+			int[] encoding = encode(group, constraints, numbers);
+			if (best == null || Arrays.compare(encoding, best) < 0) {
+				best = encoding;
+				bestOrder = order.clone();
+			}
+		}
+
+		Point[] ordered = new Point[points.length];
+		for (int n = 0; n < ordered.length; n++)
+			ordered[n] = points[(int) (bestOrder[n] & 63)];
+
+		return new Pattern(new Key(best), ordered);
+	}
+
+	/**
+	 * writes the tile count followed by every constraint as its sum, size and sorted tile numbers, with constraints
+	 * sorted
+	 * @param group
+	 * @param constraints the tiles of each constraint of group, by index
+	 * @param numbers the number of each tile index
+	 * @return
+	 */
+	private static int[] encode(List<Constraint> group, int[][] constraints, int[] numbers) {
+		int[][] encoded = new int[constraints.length][];
+		int length = 1;
+		for (int c = 0; c < constraints.length; c++) {
+			int[] tiles = constraints[c];
+			int[] e = encoded[c] = new int[tiles.length + 2];
+			e[0] = group.get(c).getSum();
+			e[1] = tiles.length;
+			for (int i = 0; i < tiles.length; i++)
+				e[i + 2] = numbers[tiles[i]];
+			Arrays.sort(e, 2, e.length);
+			length += e.length;
+		}
+		Arrays.sort(encoded, Arrays::compare);
+
+		int[] encoding = new int[length];
+		encoding[0] = numbers.length;
+		int i = 1;
+		for (int[] e : encoded) {
+			System.arraycopy(e, 0, encoding, i, e.length);
+			i += e.length;
+		}
+
+		return encoding;
+	}
+
+	/**
+	 * returns the counts of a pattern for its own tiles, or null if they are not cached
+	 * @param pattern
+	 * @return
+	 */
+	public ComponentSolution get(Pattern pattern) {
+		Entry entry = entries.get(pattern.key);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+
+		hits.increment();
+		entry.uses.incrementAndGet();
+		return new ComponentSolution(pattern.points, entry.solution);
+	}
+
+	/**
+	 * caches the exact counts of a pattern, which must list its tiles in the order of {@link Pattern#getPoints()}
+	 * @param pattern
+	 * @param solution
+	 */
+	public void put(Pattern pattern, ComponentSolution solution) {
+		if (!solution.isExact())
+			throw new IllegalArgumentException("sampled counts are not cached");
+
+		entries.putIfAbsent(pattern.key, new Entry(solution));
+		if (entries.size() > maxEntries && isEvicting.compareAndSet(false, true)) {
+			try {
+				evict();
+			} finally {
+				isEvicting.set(false);
+			}
+		}
+	}
+
+	/**
+	 * removes the least used entries until the cache is three quarters full, and halves the use counts of the rest
+	 */
+	private void evict() {
+		List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.entrySet());
+		candidates.sort(Comparator.comparingInt(e -> e.getValue().uses.get()));
+
+		int excess = candidates.size() - maxEntries * 3 / 4;
+		for (int i = 0; i < candidates.size(); i++) {
+			Map.Entry<Key, Entry> candidate = candidates.get(i);
+			if (i < excess) {
+				entries.remove(candidate.getKey(), candidate.getValue());
+				evictions.increment();
+			} else {
+				candidate.getValue().uses.updateAndGet(uses -> uses >>> 1);
+			}
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public String toString() {
+		long hits = getHits(), misses = getMisses();
+		return String.format("pattern cache: %d entries, %d hits, %d misses (%.1f%% hit rate), %d evicted",
+				size(), hits, misses, 100.0 * hits / Math.max(1, hits + misses), getEvictions());
+	}
+
+	/**
+	 * a component in canonical form: its key, and its tiles in the order the key numbers them
+	 */
+	public static class Pattern {
+		private final Key key;
+		private final Point[] points;
+
+		private Pattern(Key key, Point[] points) {
+			this.key = key;
+			this.points = points;
+		}
+
+		public Point[] getPoints() {
+			return points;
+		}
+	}
+
+	private static class Key {
+		private final int[] encoding;
+		private final int hash;
+
+		Key(int[] encoding) {
+			this.encoding = encoding;
+			this.hash = Arrays.hashCode(encoding);
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(encoding, ((Key) o).encoding);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static class Entry {
+		private final ComponentSolution solution;
+		private final AtomicInteger uses = new AtomicInteger();
+
+		Entry(ComponentSolution solution) {
+			this.solution = solution;
+		}
+	}
+}
@@ -1,35 +1,44 @@
+package minesweeper;
+
 import java.io.IOException;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
  * Prints the total number of randomly generated games out of 500 that were winnable in at least 5 attempts at each of
- * the three preset Minesweeper difficulties
+ * the three preset Minesweeper difficulties.  Every game is reproducible from the run's seed (the first argument) and
+ * the game's index
  */
 public class PresetBoardBenchmark {
 	public static void main(String[] args) throws IOException {
 		final int runs = 500;
 		final int attemptsPerRun = 5;
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 435;
 
 		for (Difficulty d : Difficulty.values()) {
 			long start = System.currentTimeMillis();
+			PatternCache patternCache = new PatternCache();
 			List<Boolean> games = IntStream.range(0, runs)
 					.parallel()
-					.mapToObj(i -> getOutcome(d, attemptsPerRun))
+					.mapToObj(i -> getOutcome(d, MinesweeperBoard.randomFor(seed, i), attemptsPerRun, patternCache))
 					.collect(Collectors.toList());
 
 			int totalGames = games.size();
 			long totalWins = games.stream().filter(b -> b).count();
-			System.out.println(String.format("%12s: %5d/%-5d  %5d seconds", d, totalWins, totalGames, (System.currentTimeMillis() - start)/1000));
+			System.out.println(String.format("%12s: %5d/%-5d  %5d seconds  %s", d, totalWins, totalGames, (System.currentTimeMillis() - start)/1000, patternCache));
 		}
 	}
 
-	private static boolean getOutcome(Difficulty d, final int attempts) {
-		MinesweeperBoard b = d.buildBoard();
+	private static boolean getOutcome(Difficulty d, SplittableRandom random, final int attempts, PatternCache patternCache) {
+		MinesweeperBoard b = d.buildBoard(random);
+		MinesweeperSolver ss = new MinesweeperSolver(b);
+		ss.setPatternCache(patternCache);
 		for (int i = 0; i < attempts; i++) {
 			b.reset();
-			MinesweeperSolver ss = new MinesweeperSolver(b);
+			ss.reset(b, random.split());
 			ss.solve();
 			Boolean isWin = ss.isWin();
 
@@ -46,14 +55,14 @@ public class PresetBoardBenchmark {
 		Intermediate,
 		Expert;
 
-		public MinesweeperBoard buildBoard() {
+		public MinesweeperBoard buildBoard(RandomGenerator random) {
 			switch (this) {
 				case Beginner:
-					return new MinesweeperBoard(9, 9, 10);
+					return new MinesweeperBoard(9, 9, 10, random);
 				case Intermediate:
-					return new MinesweeperBoard(16, 16, 40);
+					return new MinesweeperBoard(16, 16, 40, random);
 				case Expert:
-					return new MinesweeperBoard(16, 30, 99);
+					return new MinesweeperBoard(16, 30, 99, random);
 			}
 
 			throw new IllegalStateException();
@@ -0,0 +1,430 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compact binary log of every move made by the solver in a run of {@link Simulation} games, for post-mortems and for
+ * checking a new solver version against an old one.
+ *
+ * The file starts with a header (magic, spec and seed of the run) followed by the games in the order they finished.
+ * Each game is its index as a varint, then one varint per move holding <code>tile &lt;&lt; 2 | action</code>, where
+ * tile is the flat index row * width + column, followed by the mine probability as a float for guesses only, and finally
+ * a 0 byte.  Moves known to be safe or mines are therefore one to three bytes each.
+ */
+public class ReplayLog {
+	/**
+	 * reveal of a tile known to be empty
+	 */
+	public static final byte REVEAL = 1;
+	/**
+	 * flag of a tile known to be a mine
+	 */
+	public static final byte FLAG = 2;
+	/**
+	 * reveal of a tile chosen as a guess, which might be a mine even if its estimated probability is 0
+	 */
+	public static final byte GUESS = 3;
+
+	private static final int MAGIC = 0x4D53524C; // "MSRL"
+
+	private ReplayLog() {
+	}
+
+	/**
+	 * writes the header of a log of games played on spec by a run seeded with seed
+	 * @param out
+	 * @param spec
+	 * @param seed
+	 * @throws IOException
+	 */
+	public static void writeHeader(DataOutput out, GameSpec spec, long seed) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(spec.getWidth());
+		out.writeInt(spec.getHeight());
+		out.writeInt(spec.getMines());
+		out.writeLong(seed);
+	}
+
+	/**
+	 * returns the move code of a decision reported to {@link SolverListener#moveMade}
+	 * @param isFlag
+	 * @param isGuess
+	 * @return
+	 */
+	static byte getAction(boolean isFlag, boolean isGuess) {
+		return isFlag ? FLAG : isGuess ? GUESS : REVEAL;
+	}
+
+	/**
+	 * Encodes the moves of games as they are played.  Attach it to a solver between {@link #startGame(long)} and
+	 * {@link #endGame()}; any number of games can be recorded before the bytes are written out and the recorder cleared
+	 */
+	public static class Recorder implements SolverListener {
+		private final int width;
+		private byte[] bytes = new byte[1024];
+		private int length;
+
+		/**
+		 * @param width the width of the boards the games are played on
+		 */
+		public Recorder(int width) {
+			this.width = width;
+		}
+
+		public void startGame(long game) {
+			writeVarint(game);
+		}
+
+		public void moveMade(Point tile, boolean isFlag, boolean isGuess, double probability) {
+			byte action = getAction(isFlag, isGuess);
+			writeVarint(((long) tile.y * width + tile.x) << 2 | action);
+			if (action == GUESS) {
+				int bits = Float.floatToIntBits((float) probability);
+				ensureCapacity(4);
+				bytes[length++] = (byte) (bits >>> 24);
+				bytes[length++] = (byte) (bits >>> 16);
+				bytes[length++] = (byte) (bits >>> 8);
+				bytes[length++] = (byte) bits;
+			}
+		}
+
+		public void endGame() {
+			writeVarint(0);
+		}
+
+		/**
+		 * returns the bytes recorded since the last clear
+		 * @return
+		 */
+		public ByteBuffer getBytes() {
+			return ByteBuffer.wrap(bytes, 0, length);
+		}
+
+		public void clear() {
+			length = 0;
+		}
+
+		private void writeVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				bytes[length++] = (byte) (value | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+
+		private void ensureCapacity(int extra) {
+			if (length + extra > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+		}
+	}
+
+	/**
+	 * reads the games of a log one at a time
+	 */
+	public static class Reader implements Closeable {
+		private final DataInputStream in;
+		private final GameSpec spec;
+		private final long seed;
+
+		public Reader(Path file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+			try {
+				if (in.readInt() != MAGIC)
+					throw new IOException("not a replay log: " + file);
+				spec = new GameSpec(in.readInt(), in.readInt(), in.readInt());
+				seed = in.readLong();
+			} catch (IOException | RuntimeException e) {
+				in.close();
+				throw e;
+			}
+		}
+
+		public GameSpec getSpec() {
+			return spec;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		/**
+		 * returns the next game, or null at the end of the log
+		 * @return
+		 * @throws IOException if the log ends in the middle of a game
+		 */
+		public Game next() throws IOException {
+			int first = in.read();
+			if (first < 0)
+				return null;
+
+			Game game = new Game(spec, seed, readVarint(first));
+			for (long move = readVarint(in.readUnsignedByte()); move != 0; move = readVarint(in.readUnsignedByte())) {
+				byte action = (byte) (move & 3);
+				game.add(move >>> 2, action, action == GUESS ? in.readFloat() : action == FLAG ? 1 : 0);
+			}
+
+			return game;
+		}
+
+		private long readVarint(int b) throws IOException {
+			long value = b & 0x7F;
+			for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+				b = in.readUnsignedByte();
+				value |= (long) (b & 0x7F) << shift;
+			}
+
+			return value;
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * the moves of one logged game
+	 */
+	public static class Game {
+		private final GameSpec spec;
+		private final long seed;
+		private final long index;
+		private long[] tiles = new long[64];
+		private byte[] actions = new byte[64];
+		private float[] probabilities = new float[64];
+		private int size;
+
+		Game(GameSpec spec, long seed, long index) {
+			this.spec = spec;
+			this.seed = seed;
+			this.index = index;
+		}
+
+		private void add(long tile, byte action, float probability) {
+			if (size == tiles.length) {
+				tiles = Arrays.copyOf(tiles, size * 2);
+				actions = Arrays.copyOf(actions, size * 2);
+				probabilities = Arrays.copyOf(probabilities, size * 2);
+			}
+			tiles[size] = tile;
+			actions[size] = action;
+			probabilities[size++] = probability;
+		}
+
+		/**
+		 * returns the index of this game within its run
+		 * @return
+		 */
+		public long getIndex() {
+			return index;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public long getTile(int move) {
+			return tiles[move];
+		}
+
+		public byte getAction(int move) {
+			return actions[move];
+		}
+
+		public float getProbability(int move) {
+			return probabilities[move];
+		}
+
+		/**
+		 * applies the logged moves straight to a board, without solving anything, leaving it as the game ended.  Flags
+		 * are skipped, since the board does not track them
+		 * @param board
+		 * @return false if a mine was revealed
+		 */
+		public boolean replay(Board board) {
+			for (int move = 0; move < size && !board.hasRevealedMine(); move++)
+				if (actions[move] != FLAG)
+					board.revealCascade((int) (tiles[move] / board.getWidth()), (int) (tiles[move] % board.getWidth()));
+
+			return !board.hasRevealedMine();
+		}
+
+		/**
+		 * replays the logged moves against a fresh board
+		 * @return
+		 * @see #replay(Board)
+		 */
+		public MinesweeperBoard replay() {
+			MinesweeperBoard board = spec.buildBoard(seed, index);
+			replay(board);
+			return board;
+		}
+
+		/**
+		 * plays this game again with the current solver, exactly as {@link Simulation} played it, and compares its moves
+		 * with the logged ones
+		 * @return the first move which differs, or null if the games are identical
+		 */
+		public Divergence findDivergence() {
+			return findDivergence(Simulation.newSolver(spec, seed, index));
+		}
+
+		/**
+		 * plays a solver until its moves differ from the logged ones or its game ends
+		 * @param solver a new solver for the board of this game
+		 * @return the first move which differs, or null if the games are identical
+		 */
+		public Divergence findDivergence(MinesweeperSolver solver) {
+			Comparison comparison = new Comparison();
+			solver.setListener(comparison);
+			while (comparison.divergence == null && !solver.isGameFinished())
+				solver.doMove();
+			solver.setListener(null);
+
+			if (comparison.divergence == null && comparison.move < size)
+				comparison.diverge(null);
+			return comparison.divergence;
+		}
+
+		private class Comparison implements SolverListener {
+			private int move;
+			private Divergence divergence;
+
+			public void moveMade(Point tile, boolean isFlag, boolean isGuess, double probability) {
+				if (divergence != null)
+					return;
+
+				Move actual = new Move((long) tile.y * spec.getWidth() + tile.x, ReplayLog.getAction(isFlag, isGuess), (float) probability);
+				if (move >= size || tiles[move] != actual.tile || actions[move] != actual.action)
+					diverge(actual);
+				else move++;
+			}
+
+			private void diverge(Move actual) {
+				Move logged = move < size ? new Move(tiles[move], actions[move], probabilities[move]) : null;
+				divergence = new Divergence(index, move, logged, actual);
+			}
+		}
+	}
+
+	/**
+	 * one move of a game
+	 */
+	public static class Move {
+		private final long tile;
+		private final byte action;
+		private final float probability;
+
+		Move(long tile, byte action, float probability) {
+			this.tile = tile;
+			this.action = action;
+			this.probability = probability;
+		}
+
+		public long getTile() {
+			return tile;
+		}
+
+		public byte getAction() {
+			return action;
+		}
+
+		public float getProbability() {
+			return probability;
+		}
+
+		public String toString() {
+			return action == FLAG ? "flag " + tile : action == REVEAL ? "reveal " + tile : String.format("guess %d (p=%.4f)", tile, probability);
+		}
+	}
+
+	/**
+	 * the first move at which a replayed game differs from the log
+	 */
+	public static class Divergence {
+		private final long game;
+		private final int move;
+		private final Move logged;
+		private final Move actual;
+
+		Divergence(long game, int move, Move logged, Move actual) {
+			this.game = game;
+			this.move = move;
+			this.logged = logged;
+			this.actual = actual;
+		}
+
+		public long getGame() {
+			return game;
+		}
+
+		public int getMove() {
+			return move;
+		}
+
+		/**
+		 * returns the logged move, or null if the logged game ended here
+		 * @return
+		 */
+		public Move getLogged() {
+			return logged;
+		}
+
+		/**
+		 * returns the replayed move, or null if the replayed game ended here
+		 * @return
+		 */
+		public Move getActual() {
+			return actual;
+		}
+
+		public String toString() {
+			return String.format("game %d, move %d: logged %s, replayed %s", game, move,
+					Objects.toString(logged, "end of game"), Objects.toString(actual, "end of game"));
+		}
+	}
+
+	/**
+	 * replays every game of a log with the current solver and prints the first divergence of each game which differs
+	 *
+	 * usage: ReplayLog FILE
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("usage: ReplayLog FILE");
+			System.exit(2);
+		}
+
+		long games = 0, diverged = 0;
+		try (Reader reader = new Reader(Paths.get(args[0]))) {
+			List<Game> batch = new ArrayList<>();
+			for (Game game = reader.next(); game != null || !batch.isEmpty(); game = reader.next()) {
+				if (game != null)
+					batch.add(game);
+				if (game != null && batch.size() < 1000)
+					continue;
+
+				for (Divergence divergence : batch.parallelStream().map(Game::findDivergence).toArray(Divergence[]::new))
+					if (divergence != null) {
+						diverged++;
+						System.out.println(divergence);
+					}
+				games += batch.size();
+				batch.clear();
+			}
+		}
+
+		System.out.printf("%d/%d games diverged%n", diverged, games);
+	}
+}
@@ -0,0 +1,471 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+/**
+ * Headless engine for playing very large numbers of games of one board spec.
+ *
+ * Game i of a run is fully determined by the run's seed: its board and every random choice of its solver are drawn from
+ * {@link MinesweeperBoard#randomFor(long, long)}.  Games are grouped into fixed-size shards which are played in parallel.
+ * As each shard finishes its records are appended to the record file, and a checkpoint listing the finished shards is
+ * rewritten periodically.  Running again with the same arguments resumes from the last checkpoint, discarding records of
+ * shards which finished after it.
+ *
+ * The record file starts with a header (magic, spec and seed) followed by one fixed-size record per game:
+ * game index (long), outcome (byte), guesses (int), flags (int), solve time in microseconds (int).  With replay logging
+ * on, every move of every game is also written to a {@link ReplayLog} next to the record file.
+ */
+public class Simulation {
+	public static final byte LOSS = 0;
+	public static final byte WIN = 1;
+	public static final byte FIRST_MOVE_LOSS = 2;
+
+	static final int RECORD_SIZE = 8 + 1 + 4 + 4 + 4;
+	private static final int MAGIC = 0x4D53494D; // "MSIM"
+	private static final int CHECKPOINT_MAGIC = 0x4D53434B; // "MSCK"
+
+	private final GameSpec spec;
+	private final long seed;
+	private final long games;
+	private final Path records;
+	private final Path checkpoint;
+	private final Path replays;
+
+	private int shardSize = 1000;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private long checkpointIntervalNanos = TimeUnit.SECONDS.toNanos(30);
+	private boolean isReplayLogging;
+	private final SolverMetrics metrics = new SolverMetrics();
+	private final PatternCache patternCache = new PatternCache();
+
+	private FileChannel channel;
+	private FileChannel replayChannel;
+	private BitSet finishedShards;
+	private long lastCheckpoint;
+
+	/**
+	 * @param spec the board every game is played on
+	 * @param seed the seed of the run
+	 * @param games the number of games to play
+	 * @param records the record file; the checkpoint is kept next to it
+	 */
+	public Simulation(GameSpec spec, long seed, long games, Path records) {
+		if (games < 0)
+			throw new IllegalArgumentException();
+
+		this.spec = spec;
+		this.seed = seed;
+		this.games = games;
+		this.records = records;
+		this.checkpoint = records.resolveSibling(records.getFileName() + ".checkpoint");
+		this.replays = records.resolveSibling(records.getFileName() + ".replay");
+	}
+
+	/**
+	 * sets the number of games per shard, the unit of work, output and resumption
+	 * @param shardSize
+	 */
+	public void setShardSize(int shardSize) {
+		if (shardSize < 1)
+			throw new IllegalArgumentException();
+
+		this.shardSize = shardSize;
+	}
+
+	/**
+	 * sets the number of games played at once
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException();
+
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * sets the minimum time between checkpoints
+	 * @param interval
+	 * @param unit
+	 */
+	public void setCheckpointInterval(long interval, TimeUnit unit) {
+		this.checkpointIntervalNanos = unit.toNanos(interval);
+	}
+
+	/**
+	 * sets whether the moves of every game are logged to a replay log next to the record file.  A run must be resumed
+	 * with the same setting it was started with
+	 * @param isReplayLogging
+	 */
+	public void setReplayLogging(boolean isReplayLogging) {
+		this.isReplayLogging = isReplayLogging;
+	}
+
+	/**
+	 * returns the metrics of every game played by this simulation, which are also registered as an MXBean named after the
+	 * record file while it runs
+	 * @return
+	 */
+	public SolverMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * returns the cache of frontier component counts shared by every game played by this simulation
+	 * @return
+	 */
+	public PatternCache getPatternCache() {
+		return patternCache;
+	}
+
+	/**
+	 * plays every game not already recorded by a previous run, then summarizes the whole record file
+	 * @return
+	 * @throws IOException
+	 */
+	public Summary run() throws IOException {
+		int shards = (int) ((games + shardSize - 1) / shardSize);
+		ObjectName metricsName = metrics.register(records.toString());
+		try (FileChannel channel = FileChannel.open(records, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				FileChannel replayChannel = isReplayLogging ? FileChannel.open(replays, StandardOpenOption.CREATE, StandardOpenOption.WRITE) : null) {
+			this.channel = channel;
+			this.replayChannel = replayChannel;
+			this.finishedShards = new BitSet(shards);
+			resume();
+
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				for (int shard = finishedShards.nextClearBit(0); shard < shards; shard = finishedShards.nextClearBit(shard + 1)) {
+					int s = shard;
+					tasks.add(pool.submit(() -> {
+						ReplayLog.Recorder recorder = isReplayLogging ? new ReplayLog.Recorder(spec.getWidth()) : null;
+						finishShard(s, playShard(s, recorder), recorder);
+					}));
+				}
+				for (ForkJoinTask<?> task : tasks)
+					task.join();
+			} finally {
+				pool.shutdownNow();
+			}
+
+			writeCheckpoint();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			channel = null;
+			replayChannel = null;
+			metrics.unregister(metricsName);
+		}
+
+		return summarize(records);
+	}
+
+	/**
+	 * plays every game of a shard
+	 * @param shard
+	 * @param recorder receives the moves of the shard's games, or null if they are not logged
+	 * @return the shard's records, ready to be written
+	 */
+	private ByteBuffer playShard(int shard, ReplayLog.Recorder recorder) {
+		long first = (long) shard * shardSize;
+		long last = Math.min(games, first + shardSize);
+		ByteBuffer buffer = ByteBuffer.allocate((int) (last - first) * RECORD_SIZE);
+		MinesweeperSolver solver = null;
+		for (long game = first; game < last; game++)
+			solver = play(game, solver, buffer, recorder);
+
+		return buffer.flip();
+	}
+
+	/**
+	 * plays a game, reusing the solver of the shard's previous game if there is one
+	 * @return the solver, for the next game
+	 */
+	private MinesweeperSolver play(long game, MinesweeperSolver solver, ByteBuffer buffer, ReplayLog.Recorder recorder) {
+		solver = newSolver(spec, seed, game, solver);
+		GameStats stats = new GameStats(recorder);
+		solver.setListener(stats);
+		solver.setMetrics(metrics);
+		solver.setPatternCache(patternCache);
+
+		if (recorder != null)
+			recorder.startGame(game);
+		long start = System.nanoTime();
+		solver.solve();
+		long micros = (System.nanoTime() - start) / 1000;
+		if (recorder != null)
+			recorder.endGame();
+
+		Boolean isWin = solver.isWin();
+		buffer.putLong(game)
+				.put(isWin == null ? FIRST_MOVE_LOSS : isWin ? WIN : LOSS)
+				.putInt(stats.guesses)
+				.putInt(stats.flags)
+				.putInt((int) Math.min(Integer.MAX_VALUE, micros));
+		return solver;
+	}
+
+	/**
+	 * returns the solver for game number game of a run, with its board
+	 * @param spec
+	 * @param seed
+	 * @param game
+	 * @return
+	 */
+	static MinesweeperSolver newSolver(GameSpec spec, long seed, long game) {
+		return newSolver(spec, seed, game, null);
+	}
+
+	/**
+	 * returns the solver for game number game of a run, resetting reuse onto the game's board rather than allocating a
+	 * new solver if it is not null.  Either way the game is played the same
+	 * @param spec
+	 * @param seed
+	 * @param game
+	 * @param reuse a solver of an earlier game of the same spec, or null
+	 * @return
+	 */
+	static MinesweeperSolver newSolver(GameSpec spec, long seed, long game, MinesweeperSolver reuse) {
+		SplittableRandom random = MinesweeperBoard.randomFor(seed, game);
+		MinesweeperBoard board = new MinesweeperBoard(spec.getWidth(), spec.getHeight(), spec.getMines(), random);
+		if (reuse == null)
+			return new MinesweeperSolver(board, random.split());
+
+		reuse.reset(board, random.split());
+		return reuse;
+	}
+
+	private synchronized void finishShard(int shard, ByteBuffer shardRecords, ReplayLog.Recorder recorder) {
+		try {
+			channel.write(shardRecords, channel.size());
+			if (recorder != null)
+				replayChannel.write(recorder.getBytes(), replayChannel.size());
+			finishedShards.set(shard);
+			if (System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos)
+				writeCheckpoint();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Makes the record file durable and then atomically replaces the checkpoint with the set of finished shards and the
+	 * lengths of the record file and replay log which cover exactly those shards
+	 * @throws IOException
+	 */
+	private synchronized void writeCheckpoint() throws IOException {
+		channel.force(false);
+		if (replayChannel != null)
+			replayChannel.force(false);
+
+		Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(CHECKPOINT_MAGIC);
+			writeParameters(out);
+			out.writeInt(shardSize);
+			out.writeLong(channel.size());
+			out.writeLong(replayChannel == null ? -1 : replayChannel.size());
+			long[] words = finishedShards.toLongArray();
+			out.writeInt(words.length);
+			for (long word : words)
+				out.writeLong(word);
+		}
+		Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		lastCheckpoint = System.nanoTime();
+	}
+
+	/**
+	 * restores the finished shards from the checkpoint and truncates records and replays written after it.  Starts a new
+	 * record file and replay log if there is no checkpoint
+	 * @throws IOException
+	 */
+	private void resume() throws IOException {
+		lastCheckpoint = System.nanoTime();
+		if (!Files.exists(checkpoint)) {
+			channel.truncate(0);
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(header)) {
+				out.writeInt(MAGIC);
+				writeParameters(out);
+			}
+			channel.write(ByteBuffer.wrap(header.toByteArray()), 0);
+
+			if (replayChannel != null) {
+				replayChannel.truncate(0);
+				header.reset();
+				try (DataOutputStream out = new DataOutputStream(header)) {
+					ReplayLog.writeHeader(out, spec, seed);
+				}
+				replayChannel.write(ByteBuffer.wrap(header.toByteArray()), 0);
+			}
+			return;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+			if (in.readInt() != CHECKPOINT_MAGIC)
+				throw new IOException("not a simulation checkpoint: " + checkpoint);
+
+			GameSpec spec = readSpec(in);
+			long seed = in.readLong(), games = in.readLong();
+			int shardSize = in.readInt();
+			if (!spec.equals(this.spec) || seed != this.seed || games != this.games || shardSize != this.shardSize)
+				throw new IllegalStateException("checkpoint " + checkpoint + " belongs to a different run");
+
+			channel.truncate(in.readLong());
+			long replayLength = in.readLong();
+			if ((replayLength >= 0) != isReplayLogging)
+				throw new IllegalStateException("checkpoint " + checkpoint + " was written with replay logging " + (isReplayLogging ? "off" : "on"));
+			if (replayChannel != null)
+				replayChannel.truncate(replayLength);
+			long[] words = new long[in.readInt()];
+			for (int i = 0; i < words.length; i++)
+				words[i] = in.readLong();
+			finishedShards.or(BitSet.valueOf(words));
+		}
+	}
+
+	private void writeParameters(DataOutputStream out) throws IOException {
+		out.writeInt(spec.getWidth());
+		out.writeInt(spec.getHeight());
+		out.writeInt(spec.getMines());
+		out.writeLong(seed);
+		out.writeLong(games);
+	}
+
+	private static GameSpec readSpec(DataInputStream in) throws IOException {
+		return new GameSpec(in.readInt(), in.readInt(), in.readInt());
+	}
+
+	/**
+	 * reads every record of a record file
+	 * @param records
+	 * @return
+	 * @throws IOException
+	 */
+	public static Summary summarize(Path records) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(records), 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("not a simulation record file: " + records);
+
+			Summary summary = new Summary(readSpec(in));
+			in.readLong(); // seed
+			in.readLong(); // games
+			byte[] record = new byte[RECORD_SIZE];
+			ByteBuffer buffer = ByteBuffer.wrap(record);
+			while (in.read(record, 0, 1) == 1) {
+				in.readFully(record, 1, RECORD_SIZE - 1);
+				summary.add(buffer.get(8), buffer.getInt(9), buffer.getInt(17));
+			}
+
+			return summary;
+		}
+	}
+
+	/**
+	 * counts the guesses and flags of one game, passing its moves on to a replay recorder if there is one
+	 */
+	private static class GameStats implements SolverListener {
+		private final ReplayLog.Recorder recorder;
+		private int guesses;
+		private int flags;
+
+		GameStats(ReplayLog.Recorder recorder) {
+			this.recorder = recorder;
+		}
+
+		public void moveMade(Point tile, boolean isFlag, boolean isGuess, double probability) {
+			if (recorder != null)
+				recorder.moveMade(tile, isFlag, isGuess, probability);
+		}
+
+		public void guessMade(Point tile, double probability, boolean isFrontier) {
+			guesses++;
+		}
+
+		public void tileFlagged(Point tile) {
+			flags++;
+		}
+	}
+
+	/**
+	 * totals over the records of a simulation
+	 */
+	public static class Summary {
+		private final GameSpec spec;
+		private long games;
+		private long wins;
+		private long firstMoveLosses;
+		private long guesses;
+		private long micros;
+
+		Summary(GameSpec spec) {
+			this.spec = spec;
+		}
+
+		void add(byte outcome, int guesses, int micros) {
+			games++;
+			wins += outcome == WIN ? 1 : 0;
+			firstMoveLosses += outcome == FIRST_MOVE_LOSS ? 1 : 0;
+			this.guesses += guesses;
+			this.micros += micros;
+		}
+
+		public long getGames() {
+			return games;
+		}
+
+		public long getWins() {
+			return wins;
+		}
+
+		public long getFirstMoveLosses() {
+			return firstMoveLosses;
+		}
+
+		public String toString() {
+			return String.format("%s: %d/%d won (%d lost on the first move), %.2f guesses/game, %.1f us/game",
+					spec, wins, games, firstMoveLosses, guesses / (double) Math.max(1, games), micros / (double) Math.max(1, games));
+		}
+	}
+
+	/**
+	 * usage: Simulation [-replay] SPEC GAMES RECORD_FILE [SEED [PARALLELISM [SHARD_SIZE]]]
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean isReplayLogging = args.length > 0 && args[0].equals("-replay");
+		if (isReplayLogging)
+			args = Arrays.copyOfRange(args, 1, args.length);
+		if (args.length < 3) {
+			System.err.println("usage: Simulation [-replay] SPEC GAMES RECORD_FILE [SEED [PARALLELISM [SHARD_SIZE]]]");
+			System.exit(2);
+		}
+
+		Simulation simulation = new Simulation(GameSpec.parse(args[0]), args.length > 3 ? Long.parseLong(args[3]) : 435, Long.parseLong(args[1]), Paths.get(args[2]));
+		if (args.length > 4)
+			simulation.setParallelism(Integer.parseInt(args[4]));
+		if (args.length > 5)
+			simulation.setShardSize(Integer.parseInt(args[5]));
+		simulation.setReplayLogging(isReplayLogging);
+
+		System.out.println(simulation.run());
+		System.out.println(simulation.getMetrics().snapshot());
+		System.out.println(simulation.getPatternCache());
+	}
+}
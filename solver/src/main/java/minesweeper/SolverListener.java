@@ -0,0 +1,78 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.Map;
+
+/**
+ * Receives the decisions made by a {@link MinesweeperSolver} as they happen.  Every method does nothing by default, so
+ * implementations only override the events they care about.  Arguments are the solver's own objects and are only valid
+ * for the duration of the call
+ */
+public interface SolverListener {
+	/**
+	 * a constraint was resolved to all mines or all empty tiles on its own
+	 * @param constraint
+	 */
+	default void constraintSolved(Constraint constraint) {
+	}
+
+	/**
+	 * tiles were resolved by combining constraints, mapped to true for mines and false for empty tiles
+	 * @param tiles
+	 */
+	default void tilesDeduced(Map<Point, Boolean> tiles) {
+	}
+
+	/**
+	 * no tile could be deduced, and the solver is about to act on the given probabilities
+	 * @param probabilities the mine probability of every constrained tile
+	 * @param unconstrainedProbability the mine probability of every other unexplored tile
+	 * @param error the largest standard error of any of the probabilities, 0 if they are exact
+	 */
+	default void probabilitiesCalculated(Map<Point, Double> probabilities, double unconstrainedProbability, double error) {
+	}
+
+	/**
+	 * the solver chose to reveal a tile which might be a mine
+	 * @param tile
+	 * @param probability the probability that tile is a mine
+	 * @param isFrontier whether tile is part of any constraint, as opposed to a random unconstrained tile
+	 */
+	default void guessMade(Point tile, double probability, boolean isFrontier) {
+	}
+
+	/**
+	 * the solver decided to reveal or flag a tile.  This is sent once per decision, before its outcome is known, so a
+	 * reveal which opens up a region is a single move followed by one {@link #tileRevealed} per tile opened
+	 * @param tile
+	 * @param isFlag
+	 * @param isGuess whether the tile is revealed as a guess, as reported to {@link #guessMade}, rather than being known
+	 * to be empty.  A guess may still have a probability of 0, such as an unconstrained tile once every remaining mine
+	 * is on the frontier
+	 * @param probability the probability that tile is a mine: 0 for tiles known to be empty, 1 for flags
+	 */
+	default void moveMade(Point tile, boolean isFlag, boolean isGuess, double probability) {
+	}
+
+	/**
+	 * a tile was revealed without hitting a mine
+	 * @param tile
+	 * @param adjacentMines
+	 */
+	default void tileRevealed(Point tile, int adjacentMines) {
+	}
+
+	/**
+	 * a tile was flagged as a mine
+	 * @param tile
+	 */
+	default void tileFlagged(Point tile) {
+	}
+
+	/**
+	 * a mine was revealed, ending the game
+	 * @param tile
+	 */
+	default void lost(Point tile) {
+	}
+}
@@ -0,0 +1,268 @@
+package minesweeper;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of the work done by solvers.  One instance can be shared by every solver of a run, on any
+ * number of threads: counters are {@link LongAdder}s and histograms are lock-free, so recording never blocks.  The
+ * totals are exposed as a {@link Snapshot} and, once {@link #register(String) registered}, as an MXBean
+ */
+public class SolverMetrics implements SolverMetricsMXBean {
+	final LongAdder trivialTiles = new LongAdder();
+	final LongAdder deducedTiles = new LongAdder();
+	final LongAdder enumeratedTiles = new LongAdder();
+	final LongAdder frontierGuesses = new LongAdder();
+	final LongAdder randomGuesses = new LongAdder();
+	final LongAdder endgameGuesses = new LongAdder();
+	final LongAdder configurations = new LongAdder();
+	final LongAdder sampledComponents = new LongAdder();
+	final LongAdder reusedComponents = new LongAdder();
+	final Histogram componentSizes = new Histogram();
+	final Histogram moveNanos = new Histogram();
+	final Histogram probabilityNanos = new Histogram();
+
+	/**
+	 * registers these metrics with the platform MBean server as minesweeper:type=SolverMetrics,name=name
+	 * @param name
+	 * @return the name registered under
+	 * @throws IllegalStateException if the name is already taken
+	 */
+	public ObjectName register(String name) {
+		try {
+			ObjectName objectName = new ObjectName("minesweeper:type=SolverMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			return objectName;
+		} catch (InstanceAlreadyExistsException e) {
+			throw new IllegalStateException(e);
+		} catch (JMException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * removes these metrics from the platform MBean server, if they were registered under objectName
+	 * @param objectName
+	 */
+	public void unregister(ObjectName objectName) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (InstanceNotFoundException e) {
+			// already gone
+		} catch (MBeanRegistrationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public long getTrivialTiles() {
+		return trivialTiles.sum();
+	}
+
+	public long getDeducedTiles() {
+		return deducedTiles.sum();
+	}
+
+	public long getEnumeratedTiles() {
+		return enumeratedTiles.sum();
+	}
+
+	public long getFrontierGuesses() {
+		return frontierGuesses.sum();
+	}
+
+	public long getRandomGuesses() {
+		return randomGuesses.sum();
+	}
+
+	public long getEndgameGuesses() {
+		return endgameGuesses.sum();
+	}
+
+	public long getConfigurations() {
+		return configurations.sum();
+	}
+
+	public long getSampledComponents() {
+		return sampledComponents.sum();
+	}
+
+	public long getReusedComponents() {
+		return reusedComponents.sum();
+	}
+
+	public Histogram.Snapshot getComponentSizes() {
+		return componentSizes.snapshot();
+	}
+
+	public Histogram.Snapshot getMoveNanos() {
+		return moveNanos.snapshot();
+	}
+
+	public Histogram.Snapshot getProbabilityNanos() {
+		return probabilityNanos.snapshot();
+	}
+
+	/**
+	 * copies every counter and histogram.  Work recorded while the copy is made may or may not be included
+	 * @return
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	public void reset() {
+		trivialTiles.reset();
+		deducedTiles.reset();
+		enumeratedTiles.reset();
+		frontierGuesses.reset();
+		randomGuesses.reset();
+		endgameGuesses.reset();
+		configurations.reset();
+		sampledComponents.reset();
+		reusedComponents.reset();
+		componentSizes.reset();
+		moveNanos.reset();
+		probabilityNanos.reset();
+	}
+
+	/**
+	 * the metrics of a run at one point in time
+	 */
+	public static class Snapshot {
+		private final long trivialTiles;
+		private final long deducedTiles;
+		private final long enumeratedTiles;
+		private final long frontierGuesses;
+		private final long randomGuesses;
+		private final long endgameGuesses;
+		private final long configurations;
+		private final long sampledComponents;
+		private final long reusedComponents;
+		private final Histogram.Snapshot componentSizes;
+		private final Histogram.Snapshot moveNanos;
+		private final Histogram.Snapshot probabilityNanos;
+
+		private Snapshot(SolverMetrics metrics) {
+			trivialTiles = metrics.getTrivialTiles();
+			deducedTiles = metrics.getDeducedTiles();
+			enumeratedTiles = metrics.getEnumeratedTiles();
+			frontierGuesses = metrics.getFrontierGuesses();
+			randomGuesses = metrics.getRandomGuesses();
+			endgameGuesses = metrics.getEndgameGuesses();
+			configurations = metrics.getConfigurations();
+			sampledComponents = metrics.getSampledComponents();
+			reusedComponents = metrics.getReusedComponents();
+			componentSizes = metrics.getComponentSizes();
+			moveNanos = metrics.getMoveNanos();
+			probabilityNanos = metrics.getProbabilityNanos();
+		}
+
+		/**
+		 * returns the number of tiles resolved by a single constraint
+		 * @return
+		 */
+		public long getTrivialTiles() {
+			return trivialTiles;
+		}
+
+		/**
+		 * returns the number of tiles resolved by combining constraints
+		 * @return
+		 */
+		public long getDeducedTiles() {
+			return deducedTiles;
+		}
+
+		/**
+		 * returns the number of tiles found to be certain only once their probabilities were calculated
+		 * @return
+		 */
+		public long getEnumeratedTiles() {
+			return enumeratedTiles;
+		}
+
+		public long getFrontierGuesses() {
+			return frontierGuesses;
+		}
+
+		public long getRandomGuesses() {
+			return randomGuesses;
+		}
+
+		/**
+		 * returns the number of guesses chosen by searching the endgame exactly
+		 * @return
+		 */
+		public long getEndgameGuesses() {
+			return endgameGuesses;
+		}
+
+		/**
+		 * returns the number of configurations enumerated or sampled while calculating probabilities
+		 * @return
+		 */
+		public long getConfigurations() {
+			return configurations;
+		}
+
+		/**
+		 * returns the number of components which exceeded the search budget and were sampled
+		 * @return
+		 */
+		public long getSampledComponents() {
+			return sampledComponents;
+		}
+
+		/**
+		 * returns the number of components whose count was reused because they had not changed since the previous
+		 * calculation
+		 * @return
+		 */
+		public long getReusedComponents() {
+			return reusedComponents;
+		}
+
+		/**
+		 * returns the number of tiles in each component whose configurations were counted
+		 * @return
+		 */
+		public Histogram.Snapshot getComponentSizes() {
+			return componentSizes;
+		}
+
+		/**
+		 * returns the time taken by each {@link MinesweeperSolver#doMove()}, in nanoseconds
+		 * @return
+		 */
+		public Histogram.Snapshot getMoveNanos() {
+			return moveNanos;
+		}
+
+		/**
+		 * returns the time taken by each {@link ConstraintSet#calculateProbabilities(long, long)}, in nanoseconds
+		 * @return
+		 */
+		public Histogram.Snapshot getProbabilityNanos() {
+			return probabilityNanos;
+		}
+
+		public String toString() {
+			return String.format("tiles: %d trivial, %d deduced, %d enumerated%n" +
+							"guesses: %d frontier, %d random, %d endgame%n" +
+							"configurations: %d, %d components sampled, %d reused%n" +
+							"component size: %s%n" +
+							"doMove: %s%n" +
+							"calculateProbabilities: %s",
+					trivialTiles, deducedTiles, enumeratedTiles, frontierGuesses, randomGuesses, endgameGuesses, configurations,
+					sampledComponents, reusedComponents, componentSizes, formatNanos(moveNanos), formatNanos(probabilityNanos));
+		}
+
+		private static String formatNanos(Histogram.Snapshot nanos) {
+			return String.format("n=%d mean=%.1fus p50=%dus p99=%dus max=%dus", nanos.getCount(), nanos.getMean() / 1000,
+					TimeUnit.NANOSECONDS.toMicros(nanos.getMedian()), TimeUnit.NANOSECONDS.toMicros(nanos.get99thPercentile()),
+					TimeUnit.NANOSECONDS.toMicros(nanos.getMax()));
+		}
+	}
+}
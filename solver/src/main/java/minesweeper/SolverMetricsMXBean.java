@@ -0,0 +1,33 @@
+package minesweeper;
+
+/**
+ * the management interface of {@link SolverMetrics}.  Histograms appear as composite values of their count, mean,
+ * median, 99th percentile and maximum
+ */
+public interface SolverMetricsMXBean {
+	long getTrivialTiles();
+
+	long getDeducedTiles();
+
+	long getEnumeratedTiles();
+
+	long getFrontierGuesses();
+
+	long getRandomGuesses();
+
+	long getEndgameGuesses();
+
+	long getConfigurations();
+
+	long getSampledComponents();
+
+	long getReusedComponents();
+
+	Histogram.Snapshot getComponentSizes();
+
+	Histogram.Snapshot getMoveNanos();
+
+	Histogram.Snapshot getProbabilityNanos();
+
+	void reset();
+}
@@ -0,0 +1,192 @@
+package minesweeper;
+
+import java.util.*;
+
+/**
+ * A board too large to hold in memory.  The board is split into 64x64 chunks, each holding the same number of mines.
+ * The mine layout of a chunk is derived on demand from the board's seed and the chunk's coordinates, so it never needs
+ * to be stored: a bounded number of recently used layouts is cached and the least recently used is evicted.  Only the
+ * revealed state of chunks in which a tile has been revealed is kept permanently.
+ *
+ * Below roughly 13% mine density (about 550 mines per chunk), regions of tiles with no adjacent mines stop being
+ * bounded, and a single reveal may cascade until memory runs out.
+ */
+public class SparseBoard implements Board {
+	private static final int CHUNK_SHIFT = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private final int width;
+	private final int height;
+	private final int minesPerChunk;
+	private final long seed;
+	private final Map<Long, long[]> mineChunks;
+	private final Map<Long, long[]> revealedChunks = new HashMap<>();
+	private boolean revealedMine;
+	private long[] cascadeQueue = new long[64];
+
+	/**
+	 * @param width the width of the board, a multiple of 64
+	 * @param height the height of the board, a multiple of 64
+	 * @param minesPerChunk the number of mines in every 64x64 chunk
+	 * @param seed the seed from which every chunk's mine layout is derived
+	 * @param cachedChunks the number of mine layouts to keep in memory
+	 * @throws IllegalArgumentException if the dimensions are not positive multiples of 64, or minesPerChunk does not fit
+	 * in a chunk
+	 */
+	public SparseBoard(int width, int height, int minesPerChunk, long seed, int cachedChunks) {
+		if (width < 1 || height < 1 || (width & CHUNK_MASK) != 0 || (height & CHUNK_MASK) != 0
+				|| minesPerChunk < 0 || minesPerChunk > CHUNK_SIZE * CHUNK_SIZE || cachedChunks < 1)
+			throw new IllegalArgumentException();
+
+		this.width = width;
+		this.height = height;
+		this.minesPerChunk = minesPerChunk;
+		this.seed = seed;
+		this.mineChunks = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+				return size() > cachedChunks;
+			}
+		};
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * returns null: the board is a standard grid, far too large to tabulate
+	 * @return
+	 */
+	public Topology getTopology() {
+		return null;
+	}
+
+	public long getMineCount() {
+		return (long) (width >>> CHUNK_SHIFT) * (height >>> CHUNK_SHIFT) * minesPerChunk;
+	}
+
+	public boolean hasRevealedMine() {
+		return revealedMine;
+	}
+
+	public int getTile(int row, int column) {
+		checkBounds(row, column);
+
+		if (!isRevealed(row, column))
+			return MinesweeperBoard.HIDDEN;
+		if (isMine(row, column))
+			return MinesweeperBoard.MINE;
+		return countAdjacentMines(row, column);
+	}
+
+	public long[] revealCascade(int row, int column) {
+		checkBounds(row, column);
+		if (revealedMine || isRevealed(row, column))
+			throw new IllegalStateException();
+
+		setRevealed(row, column);
+		if (isMine(row, column)) {
+			revealedMine = true;
+			return new long[]{getIndex(row, column)};
+		}
+
+		int head = 0, tail = 0;
+		cascadeQueue[tail++] = getIndex(row, column);
+		while (head < tail) {
+			long tile = cascadeQueue[head++];
+			int r = (int) (tile / width), c = (int) (tile % width);
+			if (countAdjacentMines(r, c) != 0)
+				continue;
+
+			for (int nr = Math.max(0, r - 1); nr <= Math.min(height - 1, r + 1); nr++)
+				for (int nc = Math.max(0, c - 1); nc <= Math.min(width - 1, c + 1); nc++)
+					if (!isRevealed(nr, nc)) {
+						setRevealed(nr, nc);
+						if (tail == cascadeQueue.length)
+							cascadeQueue = Arrays.copyOf(cascadeQueue, tail * 2);
+						cascadeQueue[tail++] = getIndex(nr, nc);
+					}
+		}
+
+		return Arrays.copyOf(cascadeQueue, tail);
+	}
+
+	public void reset() {
+		revealedChunks.clear();
+		revealedMine = false;
+	}
+
+	/**
+	 * returns the number of chunks in which at least one tile has been revealed
+	 * @return
+	 */
+	public int getRevealedChunkCount() {
+		return revealedChunks.size();
+	}
+
+	private long getIndex(int row, int column) {
+		return (long) row * width + column;
+	}
+
+	private void checkBounds(int row, int column) {
+		if (row < 0 || column < 0 || row >= height || column >= width)
+			throw new IllegalArgumentException();
+	}
+
+	private static long getChunkKey(int row, int column) {
+		return ((long) (row >>> CHUNK_SHIFT) << 32) | (column >>> CHUNK_SHIFT);
+	}
+
+	private boolean isMine(int row, int column) {
+		return (getMineChunk(getChunkKey(row, column))[row & CHUNK_MASK] & (1L << column)) != 0;
+	}
+
+	private boolean isRevealed(int row, int column) {
+		long[] chunk = revealedChunks.get(getChunkKey(row, column));
+		return chunk != null && (chunk[row & CHUNK_MASK] & (1L << column)) != 0;
+	}
+
+	private void setRevealed(int row, int column) {
+		revealedChunks.computeIfAbsent(getChunkKey(row, column), k -> new long[CHUNK_SIZE])[row & CHUNK_MASK] |= 1L << column;
+	}
+
+	private int countAdjacentMines(int row, int column) {
+		int count = 0;
+		for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, row + 1); r++)
+			for (int c = Math.max(0, column - 1); c <= Math.min(width - 1, column + 1); c++)
+				if ((r != row || c != column) && isMine(r, c))
+					count++;
+
+		return count;
+	}
+
+	/**
+	 * returns the mine layout of a chunk, one long per row, generating it if it is not cached
+	 * @param key
+	 * @return
+	 */
+	private long[] getMineChunk(long key) {
+		long[] chunk = mineChunks.get(key);
+		if (chunk != null)
+			return chunk;
+
+		// Floyd's algorithm: places exactly minesPerChunk distinct mines with one draw each
+		chunk = new long[CHUNK_SIZE];
+		SplittableRandom random = MinesweeperBoard.randomFor(seed, key);
+		int tiles = CHUNK_SIZE * CHUNK_SIZE;
+		for (int j = tiles - minesPerChunk; j < tiles; j++) {
+			int t = random.nextInt(j + 1);
+			if ((chunk[t >>> CHUNK_SHIFT] & (1L << t)) != 0)
+				t = j;
+			chunk[t >>> CHUNK_SHIFT] |= 1L << t;
+		}
+
+		mineChunks.put(key, chunk);
+		return chunk;
+	}
+}
@@ -0,0 +1,114 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A set of flat tile indices, stored as 4096-bit pages which are only allocated once one of their tiles is added.  The
+ * most recently used page is cached, so a board that fits in a single page never reaches the page map.
+ */
+public class TileSet {
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_WORDS = (1 << PAGE_SHIFT) >>> 6;
+
+	private final TreeMap<Long, long[]> pages = new TreeMap<>();
+	private long cachedPageIndex = -1;
+	private long[] cachedPage;
+	private long size;
+
+	public boolean get(long i) {
+		long[] page = getPage(i >>> PAGE_SHIFT, false);
+		return page != null && (page[(int) (i & ((1 << PAGE_SHIFT) - 1)) >>> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 * adds a tile to this set
+	 * @param i
+	 * @return false if it was already present
+	 */
+	public boolean set(long i) {
+		long[] page = getPage(i >>> PAGE_SHIFT, true);
+		int word = (int) (i & ((1 << PAGE_SHIFT) - 1)) >>> 6;
+		if ((page[word] & (1L << i)) != 0)
+			return false;
+
+		page[word] |= 1L << i;
+		size++;
+		return true;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * returns the first tile at or after from which is in this set, or -1 if there is none
+	 * @param from
+	 * @return
+	 */
+	public long nextSetBit(long from) {
+		for (Map.Entry<Long, long[]> entry = pages.ceilingEntry(from >>> PAGE_SHIFT); entry != null; entry = pages.higherEntry(entry.getKey())) {
+			long base = entry.getKey() << PAGE_SHIFT;
+			long[] page = entry.getValue();
+			for (int w = (int) (Math.max(0, from - base) >>> 6); w < PAGE_WORDS; w++) {
+				long bits = page[w];
+				if (base + ((long) w << 6) < from)
+					bits &= -1L << from;
+				if (bits != 0)
+					return base + ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * returns the first tile at or after from which is not in this set
+	 * @param from
+	 * @return
+	 */
+	public long nextClearBit(long from) {
+		for (long i = from; ; ) {
+			long[] page = getPage(i >>> PAGE_SHIFT, false);
+			if (page == null)
+				return i;
+
+			long base = (i >>> PAGE_SHIFT) << PAGE_SHIFT;
+			for (int w = (int) ((i - base) >>> 6); w < PAGE_WORDS; w++) {
+				long bits = ~page[w];
+				if (base + ((long) w << 6) < i)
+					bits &= -1L << i;
+				if (bits != 0)
+					return base + ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			i = base + (1L << PAGE_SHIFT);
+		}
+	}
+
+	/**
+	 * removes every tile.  Pages are zeroed rather than dropped, so a set refilled with the same tiles, as when a solver
+	 * starts a new game on a board of the same size, allocates nothing
+	 */
+	public void clear() {
+		for (long[] page : pages.values())
+			Arrays.fill(page, 0);
+		size = 0;
+	}
+
+	private long[] getPage(long pageIndex, boolean create) {
+		if (pageIndex == cachedPageIndex)
+			return cachedPage;
+
+		long[] page = pages.get(pageIndex);
+		if (page == null) {
+			if (!create)
+				return null;
+			pages.put(pageIndex, page = new long[PAGE_WORDS]);
+		}
+
+		cachedPageIndex = pageIndex;
+		cachedPage = page;
+		return page;
+	}
+}
@@ -0,0 +1,247 @@
+package minesweeper;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which tiles of a board touch each other.  Tiles are numbered by flat index <code>row * width + column</code>, and the
+ * neighbors of every tile are tabulated once in compressed sparse row form: the neighbors of tile t are
+ * <code>getNeighbors()[k]</code> for k from <code>getOffsets()[t]</code> up to, not including,
+ * <code>getOffsets()[t + 1]</code>.  A tile is never its own neighbor.
+ *
+ * Topologies are immutable and shared: every board of the same shape and size gets the same instance, so the tables
+ * cost 4 bytes per tile plus 4 bytes per neighbor once per size rather than per board.  They are only shared through
+ * weak references, so the tables of a size no board uses any more are collected rather than kept for good, and
+ * tabulated again if that size comes back.
+ */
+public final class Topology {
+	/**
+	 * the ways tiles can touch
+	 */
+	public enum Shape {
+		/**
+		 * the standard board: each tile touches the up to 8 tiles around it
+		 */
+		GRID,
+		/**
+		 * a grid whose edges wrap around, so every tile has 8 neighbors
+		 */
+		TORUS,
+		/**
+		 * hexagonal tiles, with every odd row shifted half a tile right, so each tile touches up to 6 others
+		 */
+		HEX
+	}
+
+	/**
+	 * the shared topologies, by keys which carry no tables
+	 */
+	private static final Map<Topology, SharedReference> SHARED = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<Topology> COLLECTED = new ReferenceQueue<>();
+
+	private final Shape shape;
+	private final int width;
+	private final int height;
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final int maxDegree;
+
+	private Topology(Shape shape, int width, int height) {
+		this(shape, width, height, null, null, 0);
+	}
+
+	private Topology(Shape shape, int width, int height, int[] offsets, int[] neighbors, int maxDegree) {
+		this.shape = shape;
+		this.width = width;
+		this.height = height;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.maxDegree = maxDegree;
+	}
+
+	/**
+	 * returns the shared topology of a board of the given shape and size
+	 * @param shape
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public static Topology of(Shape shape, int width, int height) {
+		if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE / 9)
+			throw new IllegalArgumentException();
+
+		for (SharedReference collected; (collected = (SharedReference) COLLECTED.poll()) != null; )
+			SHARED.remove(collected.key, collected);
+
+		Topology key = new Topology(Objects.requireNonNull(shape), width, height);
+		SharedReference reference = SHARED.get(key);
+		Topology topology = reference == null ? null : reference.get();
+		if (topology != null)
+			return topology;
+
+		Topology[] shared = new Topology[1];
+		SHARED.compute(key, (k, current) -> {
+			shared[0] = current == null ? null : current.get();
+			if (shared[0] != null)
+				return current;
+
+			shared[0] = tabulate(k);
+			return new SharedReference(k, shared[0]);
+		});
+		return shared[0];
+	}
+
+	public static Topology grid(int width, int height) {
+		return of(Shape.GRID, width, height);
+	}
+
+	public static Topology torus(int width, int height) {
+		return of(Shape.TORUS, width, height);
+	}
+
+	public static Topology hex(int width, int height) {
+		return of(Shape.HEX, width, height);
+	}
+
+	private static Topology tabulate(Topology key) {
+		int tiles = key.width * key.height;
+		int[] offsets = new int[tiles + 1];
+		int[] neighbors = new int[tiles * 8];
+		int[] buffer = new int[8];
+		int count = 0, maxDegree = 0;
+		for (int tile = 0; tile < tiles; tile++) {
+			int degree = key.findNeighbors(tile / key.width, tile % key.width, buffer);
+			System.arraycopy(buffer, 0, neighbors, count, degree);
+			count += degree;
+			offsets[tile + 1] = count;
+			maxDegree = Math.max(maxDegree, degree);
+		}
+
+		return new Topology(key.shape, key.width, key.height, offsets,
+				count == neighbors.length ? neighbors : Arrays.copyOf(neighbors, count), maxDegree);
+	}
+
+	/**
+	 * writes the distinct neighbors of a tile, in ascending order, into neighbors
+	 * @param row
+	 * @param column
+	 * @param neighbors
+	 * @return the number of neighbors written
+	 */
+	private int findNeighbors(int row, int column, int[] neighbors) {
+		int count = 0;
+		for (int dr = -1; dr <= 1; dr++)
+			for (int dc = -1; dc <= 1; dc++) {
+				if (dr == 0 && dc == 0)
+					continue;
+				// in a hex grid, a row's diagonal neighbors lean towards the side it is shifted to
+				if (shape == Shape.HEX && dr != 0 && dc == ((row & 1) == 0 ? 1 : -1))
+					continue;
+
+				int r = row + dr, c = column + dc;
+				if (shape == Shape.TORUS) {
+					r = Math.floorMod(r, height);
+					c = Math.floorMod(c, width);
+				} else if (r < 0 || r >= height || c < 0 || c >= width) {
+					continue;
+				}
+
+				int tile = r * width + c;
+				if (tile != row * width + column)
+					count = insert(neighbors, count, tile);
+			}
+
+		return count;
+	}
+
+	/**
+	 * adds a tile to a sorted list unless it is already there, which only happens on a torus smaller than 3 by 3
+	 * @param tiles
+	 * @param count
+	 * @param tile
+	 * @return the new length of the list
+	 */
+	private static int insert(int[] tiles, int count, int tile) {
+		int i = Arrays.binarySearch(tiles, 0, count, tile);
+		if (i >= 0)
+			return count;
+
+		i = -i - 1;
+		System.arraycopy(tiles, i, tiles, i + 1, count - i);
+		tiles[i] = tile;
+		return count + 1;
+	}
+
+	public Shape getShape() {
+		return shape;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getTileCount() {
+		return width * height;
+	}
+
+	/**
+	 * returns the largest number of neighbors of any tile
+	 * @return
+	 */
+	public int getMaxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * returns the start of every tile's neighbors in {@link #getNeighbors()}, followed by the end of the last tile's.
+	 * The array is shared and must not be modified
+	 * @return
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * returns the neighbors of every tile, one after another.  The array is shared and must not be modified
+	 * @return
+	 */
+	public int[] getNeighbors() {
+		return neighbors;
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof Topology))
+			return false;
+
+		Topology topology = (Topology) o;
+		return shape == topology.shape && width == topology.width && height == topology.height;
+	}
+
+	public int hashCode() {
+		return (31 * shape.ordinal() + width) * 31 + height;
+	}
+
+	public String toString() {
+		return shape.name().toLowerCase() + " " + width + "x" + height;
+	}
+
+	/**
+	 * a shared topology, along with the key it is shared under so that its entry can be removed once it is collected
+	 */
+	private static class SharedReference extends WeakReference<Topology> {
+		private final Topology key;
+
+		SharedReference(Topology key, Topology topology) {
+			super(topology, COLLECTED);
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Records a human-readable trace of a game: every solved constraint, guess, flag and reveal, with the board and the
+ * remaining constraints when the game is lost.  The trace grows for the whole game, so attach this only when debugging
+ */
+public class TraceListener implements SolverListener {
+	private final MinesweeperSolver solver;
+	private final StringBuilder trace = new StringBuilder();
+
+	public TraceListener(MinesweeperSolver solver) {
+		this.solver = solver;
+	}
+
+	public String dumpDebugInfo() {
+		return trace.toString();
+	}
+
+	public void constraintSolved(Constraint constraint) {
+		debug(printDivider() + "\nFound trivially satisfied constraint: " + constraint);
+	}
+
+	public void tilesDeduced(Map<Point, Boolean> tiles) {
+		debug(printDivider() + "\nDeduced forced tiles from combined constraints");
+	}
+
+	public void probabilitiesCalculated(Map<Point, Double> probabilities, double unconstrainedProbability, double error) {
+		debug(String.format("%s\nMaking best guess from following choices (error %f):\n%s\n%s\n%s", printDivider(), error, printProbabilities(probabilities), printDivider(), solver.printBoard()));
+	}
+
+	public void guessMade(Point tile, double probability, boolean isFrontier) {
+		if (isFrontier)
+			debug(String.format("Chose %s:%s", printPoint(tile), probability));
+		else
+			debug(String.format("%s\nChose random hidden tile with probability %f", printDivider(), probability));
+	}
+
+	public void tileRevealed(Point tile, int adjacentMines) {
+		debug("Revealing " + printPoint(tile));
+	}
+
+	public void tileFlagged(Point tile) {
+		debug("Flagging " + printPoint(tile));
+	}
+
+	public void lost(Point tile) {
+		debug("Revealing " + printPoint(tile));
+		debug(String.format("%s\nLose!\n%s", printDivider(), solver));
+	}
+
+	private String printPoint(Point p) {
+		return String.format("<%d,%d>", p.y, p.x);
+	}
+
+	private String printDivider(){
+		return "------------------------------------------";
+	}
+
+	private String printProbabilities(Map<Point, Double> probabilities) {
+		return probabilities.entrySet().stream()
+				.sorted((e1, e2) -> ((int) (e1.getValue() * 10000)) - ((int) (e2.getValue() * 10000)))
+				.map(e -> String.format("%s:%s", printPoint(e.getKey()), e.getValue()))
+				.collect(Collectors.joining("\n"));
+	}
+
+	private void debug(String msg) {
+		trace.append(msg).append("\n");
+	}
+}
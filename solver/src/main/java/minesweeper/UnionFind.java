@@ -0,0 +1,53 @@
+package minesweeper;
+
+/**
+ * disjoint-set forest over the integers [0, size), with union by size and path halving
+ */
+public class UnionFind {
+	private final int[] parent;
+	private final int[] size;
+
+	public UnionFind(int size) {
+		this.parent = new int[size];
+		this.size = new int[size];
+		for (int i = 0; i < size; i++) {
+			parent[i] = i;
+			this.size[i] = 1;
+		}
+	}
+
+	/**
+	 * returns the representative element of the set containing i
+	 * @param i
+	 * @return
+	 */
+	public int find(int i) {
+		while (parent[i] != i)
+			i = parent[i] = parent[parent[i]];
+
+		return i;
+	}
+
+	/**
+	 * merges the sets containing a and b
+	 * @param a
+	 * @param b
+	 * @return the representative element of the merged set
+	 */
+	public int union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a == b)
+			return a;
+
+		if (size[a] < size[b]) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		parent[b] = a;
+		size[a] += size[b];
+
+		return a;
+	}
+}